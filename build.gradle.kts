@@ -2,6 +2,7 @@ plugins {
 	java
 	id("org.springframework.boot") version "3.4.3"
 	id("io.spring.dependency-management") version "1.1.7"
+	id("me.champeau.jmh") version "0.7.2" // Microbenchmarks under src/jmh (./gradlew jmh)
 }
 
 group = "com.horizon.ebooklibrary"
@@ -17,6 +18,14 @@ repositories {
 	mavenCentral()
 }
 
+// End-to-end load test under src/loadtest (./gradlew loadtest), runs the application with the main classpath
+val loadtest: SourceSet by sourceSets.creating {
+	compileClasspath += sourceSets.main.get().output
+	runtimeClasspath += sourceSets.main.get().output
+}
+configurations[loadtest.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[loadtest.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
 dependencies {
 	// Spring boot core dependencies
 	implementation("org.springframework.boot:spring-boot-starter-data-jpa") // Database handling
@@ -25,6 +34,8 @@ dependencies {
 	implementation("org.springframework.boot:spring-boot-starter-web")
 	implementation("org.springframework.boot:spring-boot-starter-data-jpa")
 	implementation("org.springframework:spring-messaging")
+	implementation("org.springframework.boot:spring-boot-starter-actuator") // Micrometer metrics
+	runtimeOnly("io.micrometer:micrometer-registry-prometheus") // GET /actuator/prometheus
 
 	//  ActiveMQ JMS Broker
 	implementation("org.springframework.boot:spring-boot-starter-activemq")
@@ -44,17 +55,64 @@ dependencies {
 	// Firebase Admin SDK
 	implementation("com.google.firebase:firebase-admin:9.2.0")
 
+	// In-memory caches (verified JWTs, Hibernate second-level cache through JCache)
+	implementation("com.github.ben-manes.caffeine:caffeine")
+	implementation("com.github.ben-manes.caffeine:jcache")
+	implementation("org.hibernate.orm:hibernate-jcache")
+	implementation("org.hibernate.orm:hibernate-micrometer") // Hibernate statistics as metrics
+
+	// Compressed bitmaps for the in-memory read-state index
+	implementation("org.roaringbitmap:RoaringBitmap:1.3.0")
+
 	// HTTP client
 	implementation("com.squareup.okhttp3:okhttp:4.12.0")
 
+	// S3-compatible object storage (storage.backend=s3)
+	implementation(platform("software.amazon.awssdk:bom:2.29.0"))
+	implementation("software.amazon.awssdk:s3")
+
 
 	implementation("org.postgresql:postgresql:42.6.0")
 
 	testImplementation("org.springframework.boot:spring-boot-starter-test")
 	testImplementation("org.springframework.security:spring-security-test")
+	testRuntimeOnly("com.h2database:h2") // In-memory database for @DataJpaTest
+	testImplementation("org.testcontainers:junit-jupiter") // S3StorageBackendTest against MinIO (-Ps3Tests)
+	testImplementation("org.testcontainers:minio")
 	testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+
+	// Benchmarks drive controllers and filters with Spring's servlet mocks
+	jmhImplementation("org.springframework:spring-test")
+	jmhImplementation("io.zonky.test:embedded-postgres:2.1.0") // BatchInsertBenchmark
+
+	// Load test: latency histograms and a throwaway PostgreSQL
+	"loadtestImplementation"("org.hdrhistogram:HdrHistogram:2.2.2")
+	"loadtestImplementation"("io.zonky.test:embedded-postgres:2.1.0")
 }
 
 tasks.withType<Test> {
-	useJUnitPlatform()
+	useJUnitPlatform {
+		// Tests needing Docker (a MinIO container) only run with ./gradlew test -Ps3Tests
+		if(!project.hasProperty("s3Tests")) {
+			excludeTags("s3")
+		}
+	}
+}
+
+jmh {
+	jmhVersion = "1.37"
+	// Machine-readable results, diff them between commits to spot regressions
+	resultFormat = "JSON"
+	resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+	// Run a subset with e.g. ./gradlew jmh -PjmhIncludes=JwtUtilsBenchmark
+	(findProperty("jmhIncludes") as String?)?.let { includes = listOf(it) }
+}
+
+tasks.register<JavaExec>("loadtest") {
+	group = "verification"
+	description = "Runs the end-to-end load test, options with -PloadtestArgs=\"--rps=200 --duration=60\""
+	classpath = loadtest.runtimeClasspath
+	mainClass = "com.horizon.ebooklibrary.ebooklibrarybackend.loadtest.LoadTestRunner"
+	javaLauncher = javaToolchains.launcherFor(java.toolchain)
+	(findProperty("loadtestArgs") as String?)?.let { args(it.trim().split(Regex("\\s+"))) }
 }
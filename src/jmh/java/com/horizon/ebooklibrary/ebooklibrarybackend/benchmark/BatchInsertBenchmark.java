@@ -0,0 +1,139 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * Inserting one user_books row per user for a book (the old fan-out, and the shape of any bulk write),
+ * against an embedded PostgreSQL, for 10k and 100k users.
+ * - rowByRow: one statement and round trip per row, what IDENTITY ids forced Hibernate to do.
+ * - jdbcBatch: batches of 50 (hibernate.jdbc.batch_size with pooled sequence ids).
+ * - jdbcBatchRewritten: the same batches with pgjdbc's reWriteBatchedInserts (multi-row INSERTs).
+ * - insertSelect: a single set-based INSERT ... SELECT, nothing crosses the network per row.
+ * Run with: ./gradlew jmh -PjmhIncludes=BatchInsertBenchmark
+ */
+@SuppressWarnings("unused")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BatchInsertBenchmark {
+
+    private static final int BATCH_SIZE = 50;
+
+    @Param({"10000", "100000"})
+    public int users;
+
+    private EmbeddedPostgres postgres;
+    private Connection connection;
+    private Connection rewritingConnection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        postgres = EmbeddedPostgres.builder().start();
+        String url = postgres.getJdbcUrl("postgres", "postgres");
+        connection = DriverManager.getConnection(url);
+        rewritingConnection = DriverManager.getConnection(url + "&reWriteBatchedInserts=true");
+
+        try(Statement statement = connection.createStatement()) {
+            statement.execute("create table users (id bigint primary key)");
+            statement.execute("create table books (id bigint primary key)");
+            statement.execute("create sequence user_books_seq increment by " + BATCH_SIZE);
+            statement.execute("create table user_books (id bigint primary key, " +
+                    "user_id bigint not null references users, book_id bigint not null references books, " +
+                    "read boolean not null)");
+            statement.execute("insert into users select generate_series(1, " + users + ")");
+            statement.execute("insert into books values (1)");
+        }
+        connection.setAutoCommit(false);
+        rewritingConnection.setAutoCommit(false);
+    }
+
+    @Setup(Level.Invocation)
+    public void clear() throws SQLException {
+        try(Statement statement = connection.createStatement()) {
+            statement.execute("truncate user_books");
+        }
+        connection.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException, SQLException {
+        connection.close();
+        rewritingConnection.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    public void rowByRow() throws SQLException {
+        try(PreparedStatement insert = connection.prepareStatement(
+                "insert into user_books (id, user_id, book_id, read) values (?, ?, 1, false)")) {
+            for(long user = 1; user <= users; user++) {
+                insert.setLong(1, user);
+                insert.setLong(2, user);
+                insert.executeUpdate();
+            }
+        }
+        connection.commit();
+    }
+
+    @Benchmark
+    public void jdbcBatch() throws SQLException {
+        batchInsert(connection);
+    }
+
+    @Benchmark
+    public void jdbcBatchRewritten() throws SQLException {
+        batchInsert(rewritingConnection);
+    }
+
+    @Benchmark
+    public void insertSelect() throws SQLException {
+        try(PreparedStatement insert = connection.prepareStatement(
+                "insert into user_books (id, user_id, book_id, read) " +
+                        "select nextval('user_books_seq'), u.id, ?, false from users u")) {
+            insert.setLong(1, 1);
+            insert.executeUpdate();
+        }
+        connection.commit();
+    }
+
+    private void batchInsert(Connection target) throws SQLException {
+        try(PreparedStatement insert = target.prepareStatement(
+                "insert into user_books (id, user_id, book_id, read) values (?, ?, 1, false)")) {
+            for(long user = 1; user <= users; user++) {
+                insert.setLong(1, user);
+                insert.setLong(2, user);
+                insert.addBatch();
+                if(user % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        target.commit();
+    }
+}
@@ -0,0 +1,68 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.Book;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of Book lists, as written by the listing endpoints (GET /books, /books/read, /books/unread).
+ * Uses an ObjectMapper built like Spring Boot's (Jackson2ObjectMapperBuilder), books have realistic field sizes.
+ * Run with: ./gradlew jmh -PjmhIncludes=BookSerializationBenchmark
+ */
+@SuppressWarnings("unused")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(2)
+public class BookSerializationBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private List<Book> books;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        Random random = new Random(42); // Same catalog on every run
+        books = new ArrayList<>(size);
+        for(int i = 0; i < size; i++) {
+            String hash = Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong());
+            books.add(Book.builder()
+                    .ID(i + 1)
+                    .title("Book title number " + i)
+                    .author("Author " + random.nextInt(5000))
+                    .description("A description of book " + i + " ".repeat(random.nextInt(400)))
+                    .coverUrl("http://10.0.2.2:8080/files/" + hash + ".jpg")
+                    .pdfUrl("http://10.0.2.2:8080/files/" + hash + ".pdf")
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeBookList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(books);
+    }
+}
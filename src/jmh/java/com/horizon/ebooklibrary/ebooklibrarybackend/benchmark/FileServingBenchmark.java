@@ -0,0 +1,115 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.benchmark;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.controller.FileServingController;
+import com.horizon.ebooklibrary.ebooklibrarybackend.service.FileDownloadService;
+import com.horizon.ebooklibrary.ebooklibrarybackend.service.FileETagStore;
+import com.horizon.ebooklibrary.ebooklibrarybackend.service.ThumbnailService;
+import com.horizon.ebooklibrary.ebooklibrarybackend.service.UploadService;
+import com.horizon.ebooklibrary.ebooklibrarybackend.storage.LocalStorageBackend;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * FileServingController.serveFile end to end (storage lookup, ETag, conditional and Range handling, body transfer),
+ * with the response body collected in memory.
+ * - full: the whole file (200).
+ * - range: the first 64 KB (206), like a PDF reader fetching the first page.
+ * - notModified: If-None-Match with the current ETag (304, no body).
+ * Run with: ./gradlew jmh -PjmhIncludes=FileServingBenchmark
+ */
+@SuppressWarnings("unused")
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(2)
+public class FileServingBenchmark {
+
+    @Param({"1048576", "16777216"}) // 1 MB and 16 MB PDFs
+    public int fileSize;
+
+    @Param({"full", "range", "notModified"})
+    public String request;
+
+    private Path uploadDir;
+    private FileServingController controller;
+    private String filename;
+    private String etag;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        uploadDir = Files.createTempDirectory("serve-bench");
+        LocalStorageBackend storage = new LocalStorageBackend();
+        ReflectionTestUtils.setField(storage, "uploadDir", uploadDir.toString());
+        storage.init();
+
+        byte[] content = new byte[fileSize];
+        new Random(42).nextBytes(content);
+        filename = HexFormat.of().formatHex(FileETagStore.newDigest().digest(content)) + ".pdf";
+        Path file = storage.localPath(filename);
+        Files.createDirectories(file.getParent());
+        try(OutputStream out = Files.newOutputStream(file)) {
+            out.write(content);
+        }
+        etag = "\"" + filename.substring(0, filename.indexOf('.')) + "\"";
+
+        FileETagStore fileETagStore = new FileETagStore();
+        ReflectionTestUtils.setField(fileETagStore, "uploadDir", uploadDir.toString());
+        ThumbnailService thumbnailService = new ThumbnailService(storage);
+        UploadService uploadService = new UploadService(storage, fileETagStore, null, thumbnailService,
+                new SimpleMeterRegistry());
+        controller = new FileServingController(storage, new FileDownloadService(), fileETagStore, uploadService,
+                thumbnailService, new SimpleMeterRegistry());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try(Stream<Path> files = Files.walk(uploadDir)) {
+            for(Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public int serveFile() throws IOException {
+        MockHttpServletRequest httpRequest = new MockHttpServletRequest("GET", "/files/" + filename);
+        switch(request) {
+            case "range" -> httpRequest.addHeader("Range", "bytes=0-65535");
+            case "notModified" -> httpRequest.addHeader("If-None-Match", etag);
+            default -> { }
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.serveFile(filename, null, httpRequest, response);
+        return response.getContentAsByteArray().length + response.getStatus();
+    }
+}
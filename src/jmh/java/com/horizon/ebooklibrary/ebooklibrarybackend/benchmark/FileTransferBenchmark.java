@@ -0,0 +1,147 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the two ways of moving a stored PDF to a client socket:
+ * - streamCopy: the previous FileServingController path (Resource InputStream copied through an 8 KB heap buffer,
+ *   as ResourceHttpMessageConverter does).
+ * - transferTo: FileChannel.transferTo to the socket, used by FileDownloadService (sendfile on Linux).
+ * <p>
+ * A loopback socket with a draining reader stands in for the client.
+ * Besides throughput, CPU time of the sending thread per GB is printed after every iteration.
+ * Run with: ./gradlew jmh
+ */
+@SuppressWarnings("unused")
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class FileTransferBenchmark {
+
+    private static final int HEAP_BUFFER_SIZE = 8192;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    @Param({"1048576", "67108864"}) // 1 MB and 64 MB files
+    public int fileSize;
+
+    private Path file;
+    private ServerSocketChannel server;
+    private SocketChannel client;
+    private Thread drainer;
+
+    private long cpuStart;
+    private long bytesSent;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("bench", ".pdf");
+        byte[] chunk = new byte[1024 * 1024];
+        new Random(42).nextBytes(chunk);
+        try(OutputStream out = Files.newOutputStream(file)) {
+            for(int written = 0; written < fileSize; written += chunk.length) {
+                out.write(chunk, 0, Math.min(chunk.length, fileSize - written));
+            }
+        }
+
+        server = ServerSocketChannel.open().bind(new InetSocketAddress("127.0.0.1", 0));
+        client = SocketChannel.open(server.getLocalAddress());
+        SocketChannel peer = server.accept();
+
+        // Reads and discards everything, like a fast client
+        drainer = new Thread(() -> {
+            ByteBuffer sink = ByteBuffer.allocateDirect(1024 * 1024);
+            try {
+                while(peer.read(sink) >= 0) {
+                    sink.clear();
+                }
+            } catch(IOException ignored) {
+                // Socket closed at tear down
+            }
+        }, "bench-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    @Setup(Level.Iteration)
+    public void startCpuClock() {
+        cpuStart = THREADS.getCurrentThreadCpuTime();
+        bytesSent = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportCpu() {
+        long cpuNanos = THREADS.getCurrentThreadCpuTime() - cpuStart;
+        double gigabytes = bytesSent / (1024.0 * 1024 * 1024);
+        if(gigabytes > 0) {
+            System.out.printf("%n  sender CPU: %.1f ms per GB%n", cpuNanos / 1_000_000.0 / gigabytes);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long streamCopy() throws IOException {
+        OutputStream out = Channels.newOutputStream(client);
+        byte[] buffer = new byte[HEAP_BUFFER_SIZE];
+        long total = 0;
+        try(InputStream in = file.toUri().toURL().openStream()) {
+            int read;
+            while((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                total += read;
+            }
+        }
+        bytesSent += total;
+        return total;
+    }
+
+    @Benchmark
+    public long transferTo() throws IOException {
+        long total = 0;
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            while(total < size) {
+                total += channel.transferTo(total, size - total, client);
+            }
+        }
+        bytesSent += total;
+        return total;
+    }
+}
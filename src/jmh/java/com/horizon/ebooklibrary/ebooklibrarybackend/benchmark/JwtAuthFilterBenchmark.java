@@ -0,0 +1,84 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.benchmark;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.Role;
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.User;
+import com.horizon.ebooklibrary.ebooklibrarybackend.security.JwtAuthFilter;
+import com.horizon.ebooklibrary.ebooklibrarybackend.security.JwtUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+
+/**
+ * The whole JwtAuthFilter path of an authenticated request: header extraction, token verification,
+ * building the Authentication and storing it in the SecurityContext.
+ * - repeatToken: the same token on every request (verified-token cache hit, the common case for an app session).
+ * - freshToken: a token the filter has never seen (full verification).
+ * Run with: ./gradlew jmh -PjmhIncludes=JwtAuthFilterBenchmark
+ */
+@SuppressWarnings("unused")
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class JwtAuthFilterBenchmark {
+
+    // Number of distinct tokens cycled through by freshToken, more than the verified-token cache holds
+    private static final int FRESH_TOKENS = 20_000;
+
+    @Param({"repeatToken", "freshToken"})
+    public String tokenMode;
+
+    private JwtAuthFilter filter;
+    private String[] tokens;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        JwtUtils jwtUtils = new JwtUtils(JwtUtilsBenchmark.SECRET);
+        filter = new JwtAuthFilter(jwtUtils, new SimpleMeterRegistry());
+
+        int count = tokenMode.equals("repeatToken") ? 1 : FRESH_TOKENS;
+        tokens = new String[count];
+        for(int i = 0; i < count; i++) {
+            User user = new User("reader" + i + "@ebook.com", "unused", Role.USER);
+            user.setId((long) i);
+            tokens[i] = jwtUtils.generateToken(user);
+        }
+    }
+
+    @Benchmark
+    public int filter() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/books/read");
+        request.addHeader("Authorization", "Bearer " + tokens[next]);
+        next = (next + 1) % tokens.length;
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        try {
+            filter.doFilter(request, response, new MockFilterChain());
+            return response.getStatus();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.benchmark;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.Role;
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.User;
+import com.horizon.ebooklibrary.ebooklibrarybackend.security.AuthenticatedPrincipal;
+import com.horizon.ebooklibrary.ebooklibrarybackend.security.JwtUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+
+/**
+ * JwtUtils operations:
+ * - generateToken: signing a new access token (login, refresh).
+ * - validateToken / getEmailFromToken: the public checks, answered from the verified-token cache after the first call.
+ * - parseUncached: one full verification with the shared parser (a cache miss).
+ * - twoParsersBaseline: what the filter used to do per request (two new parsers, two verifications).
+ * Run with: ./gradlew jmh -PjmhIncludes=JwtUtilsBenchmark
+ */
+@SuppressWarnings("unused")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class JwtUtilsBenchmark {
+
+    static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret-0123456789";
+
+    private JwtUtils jwtUtils;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JwtUtils(SECRET);
+        user = new User("reader@ebook.com", "unused", Role.USER);
+        user.setId(42L);
+        token = jwtUtils.generateToken(user);
+        jwtUtils.authenticate(token); // Warm the cache
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtils.generateToken(user);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtUtils.validateToken(token);
+    }
+
+    @Benchmark
+    public String getEmailFromToken() {
+        return jwtUtils.getEmailFromToken(token);
+    }
+
+    @Benchmark
+    public AuthenticatedPrincipal parseUncached() {
+        return jwtUtils.parse(token);
+    }
+
+    @Benchmark
+    public String twoParsersBaseline() {
+        String email = Jwts.parserBuilder()
+                .setSigningKey(jwtUtils.getSecretKey())
+                .build()
+                .parseClaimsJws(token)
+                .getBody()
+                .getSubject();
+        Claims claims = Jwts.parserBuilder()
+                .setSigningKey(jwtUtils.getSecretKey())
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+        return email + claims.get("authorities", String.class);
+    }
+}
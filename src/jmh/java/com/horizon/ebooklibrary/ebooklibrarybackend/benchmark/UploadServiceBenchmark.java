@@ -0,0 +1,117 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.benchmark;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.service.FileETagStore;
+import com.horizon.ebooklibrary.ebooklibrarybackend.service.ThumbnailService;
+import com.horizon.ebooklibrary.ebooklibrarybackend.service.UploadService;
+import com.horizon.ebooklibrary.ebooklibrarybackend.storage.LocalStorageBackend;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * UploadService.savePdf on tmpfs (/dev/shm when available), so the numbers reflect hashing and copying
+ * rather than the disk the benchmark happens to run on.
+ * - newContent: every upload has different bytes (hash, write, atomic rename).
+ * - duplicateContent: the same bytes every time (hash, write, then discarded as a duplicate).
+ * Run with: ./gradlew jmh -PjmhIncludes=UploadServiceBenchmark
+ */
+@SuppressWarnings("unused")
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(2)
+public class UploadServiceBenchmark {
+
+    @Param({"65536", "1048576", "10485760"}) // 64 KB, 1 MB and 10 MB (the multipart limit)
+    public int fileSize;
+
+    private Path uploadDir;
+    private LocalStorageBackend storage;
+    private UploadService uploadService;
+    private byte[] content;
+    private long counter;
+    private String lastStored;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path tmpfs = Paths.get("/dev/shm");
+        uploadDir = Files.isDirectory(tmpfs) && Files.isWritable(tmpfs)
+                ? Files.createTempDirectory(tmpfs, "upload-bench")
+                : Files.createTempDirectory("upload-bench");
+
+        storage = new LocalStorageBackend();
+        ReflectionTestUtils.setField(storage, "uploadDir", uploadDir.toString());
+        storage.init();
+        FileETagStore fileETagStore = new FileETagStore();
+        ReflectionTestUtils.setField(fileETagStore, "uploadDir", uploadDir.toString());
+        // savePdf never touches the repository or the thumbnail pipeline
+        uploadService = new UploadService(storage, fileETagStore, null, new ThumbnailService(storage),
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(uploadService, "urlPrefix", "http://localhost:8080/files/");
+
+        content = new byte[fileSize];
+        new Random(42).nextBytes(content);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try(Stream<Path> files = Files.walk(uploadDir)) {
+            for(Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Removes the file stored by newContent, so tmpfs doesn't fill up (not measured).
+     */
+    @TearDown(Level.Invocation)
+    public void removeStored() throws IOException {
+        if(lastStored != null) {
+            storage.delete(lastStored.substring(lastStored.lastIndexOf('/') + 1));
+            lastStored = null;
+        }
+    }
+
+    @Benchmark
+    public String newContent() throws IOException {
+        // Change the first 8 bytes so every upload hashes to a new name
+        long value = ++counter;
+        for(int i = 0; i < 8; i++) {
+            content[i] = (byte) (value >>> (8 * i));
+        }
+        lastStored = uploadService.savePdf(new MockMultipartFile("file", "book.pdf", "application/pdf", content));
+        return lastStored;
+    }
+
+    @Benchmark
+    public String duplicateContent() throws IOException {
+        return uploadService.savePdf(new MockMultipartFile("file", "book.pdf", "application/pdf", content));
+    }
+}
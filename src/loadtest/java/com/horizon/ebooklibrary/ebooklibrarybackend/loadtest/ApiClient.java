@@ -0,0 +1,144 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+
+/**
+ * Thin HTTP client for the backend API, used by the load driver.
+ * Speaks HTTP/1.1 like the Android app and runs its I/O on virtual threads.
+ */
+final class ApiClient {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final URI base;
+    private final HttpClient http;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    ApiClient(URI base) {
+        this.base = base;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    int signup(String email, String password) throws IOException, InterruptedException {
+        return send(jsonPost("/auth/signup", Map.of("email", email, "password", password)));
+    }
+
+    /**
+     * @return the access token, or null if the login failed
+     */
+    String login(String email, String password) throws IOException, InterruptedException {
+        HttpResponse<String> response = http.send(jsonPost("/auth/login", Map.of("email", email, "password", password)),
+                HttpResponse.BodyHandlers.ofString());
+        if(response.statusCode() != 200) {
+            return null;
+        }
+        return (String) objectMapper.readValue(response.body(), Map.class).get("accessToken");
+    }
+
+    /**
+     * GET with an optional bearer token, the body is read and discarded.
+     * @return the status code
+     */
+    int get(URI uri, String token) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri).timeout(REQUEST_TIMEOUT).GET();
+        if(token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    int get(String path, String token) throws IOException, InterruptedException {
+        return get(base.resolve(path), token);
+    }
+
+    int put(String path, String token) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(base.resolve(path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Authorization", "Bearer " + token)
+                .PUT(HttpRequest.BodyPublishers.noBody())
+                .build());
+    }
+
+    /**
+     * @return the whole catalog as parsed JSON objects
+     */
+    List<Map<String, Object>> listBooks() throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = http.send(HttpRequest.newBuilder(base.resolve("/books")).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if(response.statusCode() != 200) {
+            throw new IOException("GET /books answered " + response.statusCode());
+        }
+        return objectMapper.readValue(response.body(), new TypeReference<>() { });
+    }
+
+    /**
+     * POST /books/upload as multipart/form-data, like the admin app.
+     * @return the status code
+     */
+    int uploadBook(String token, String title, String author, byte[] pdf, byte[] cover)
+            throws IOException, InterruptedException {
+        String boundary = "loadtest-" + UUID.randomUUID();
+        ByteArrayOutputStream body = new ByteArrayOutputStream(pdf.length + cover.length + 1024);
+        writeTextPart(body, boundary, "title", title);
+        writeTextPart(body, boundary, "author", author);
+        writeTextPart(body, boundary, "description", "Uploaded by the load test");
+        writeFilePart(body, boundary, "coverImage", "cover.png", "image/png", cover);
+        writeFilePart(body, boundary, "pdfFile", "book.pdf", "application/pdf", pdf);
+        body.write(("--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+
+        return send(HttpRequest.newBuilder(base.resolve("/books/upload"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build());
+    }
+
+    private HttpRequest jsonPost(String path, Object body) throws IOException {
+        return HttpRequest.newBuilder(base.resolve(path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+    }
+
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static void writeTextPart(ByteArrayOutputStream body, String boundary, String name, String value)
+            throws IOException {
+        body.write(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"" + name + "\"\r\n"
+                + "Content-Type: text/plain; charset=UTF-8\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        body.write(value.getBytes(StandardCharsets.UTF_8));
+        body.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void writeFilePart(ByteArrayOutputStream body, String boundary, String name, String filename,
+                                      String contentType, byte[] content) throws IOException {
+        body.write(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"" + name + "\"; filename=\"" + filename + "\"\r\n"
+                + "Content-Type: " + contentType + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        body.write(content);
+        body.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,143 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.loadtest;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.EbooklibrarybackendApplication;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * A self-contained backend for load tests: an embedded PostgreSQL, a temporary upload directory and JWT secret,
+ * and the application itself started in a separate JVM under the "loadtest" profile (fake notification sender,
+ * no Firebase). Running the server in its own process keeps the load generator out of its CPU and heap.
+ */
+final class EmbeddedBackend implements AutoCloseable {
+
+    static final String ADMIN_EMAIL = "loadtest-admin@ebook.com";
+    static final String ADMIN_PASSWORD = "loadtest-admin-password";
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    private final EmbeddedPostgres postgres;
+    private final Path workDir;
+    private final Process process;
+    private final URI baseUri;
+
+    private EmbeddedBackend(EmbeddedPostgres postgres, Path workDir, Process process, URI baseUri) {
+        this.postgres = postgres;
+        this.workDir = workDir;
+        this.process = process;
+        this.baseUri = baseUri;
+    }
+
+    /**
+     * Starts the database and the application and waits until the API answers.
+     * @param outputDir where the application log is written
+     * @param virtualThreads runs the application in virtual-thread mode
+     * @param jvmArgs extra JVM arguments for the application (e.g. heap size)
+     */
+    static EmbeddedBackend start(Path outputDir, boolean virtualThreads, List<String> jvmArgs)
+            throws IOException, InterruptedException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+        Path workDir = Files.createTempDirectory("ebook-loadtest");
+        Path uploadDir = Files.createDirectories(workDir.resolve("uploads"));
+        Path jwtSecret = workDir.resolve("jwt-secret.key");
+        Files.writeString(jwtSecret, UUID.randomUUID() + "-" + UUID.randomUUID());
+
+        int port;
+        try(ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        URI baseUri = URI.create("http://localhost:" + port);
+
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(EbooklibrarybackendApplication.class.getName());
+
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(outputDir.resolve("app.log").toFile());
+        builder.environment().putAll(Map.of(
+                "SPRING_PROFILES_ACTIVE", "loadtest",
+                "SERVER_PORT", String.valueOf(port),
+                "DB_URL", postgres.getJdbcUrl("postgres", "postgres"),
+                "DB_USER", "postgres",
+                "DB_PASSWORD", "postgres",
+                "UPLOAD_DIR", uploadDir.toString(),
+                "UPLOAD_URL_PREFIX", baseUri + "/files/",
+                "JWT_SECRET_PATH", jwtSecret.toString(),
+                "DEFAULT_ADMIN_EMAIL", ADMIN_EMAIL,
+                "DEFAULT_ADMIN_PASSWORD", ADMIN_PASSWORD));
+        builder.environment().put("VIRTUAL_THREADS_ENABLED", String.valueOf(virtualThreads));
+
+        EmbeddedBackend backend = new EmbeddedBackend(postgres, workDir, builder.start(), baseUri);
+        try {
+            backend.awaitReady();
+        } catch(IOException | InterruptedException | RuntimeException e) {
+            backend.close();
+            throw e;
+        }
+        return backend;
+    }
+
+    URI getBaseUri() {
+        return baseUri;
+    }
+
+    /**
+     * Polls the public catalog endpoint until it answers 200.
+     */
+    private void awaitReady() throws IOException, InterruptedException {
+        ApiClient client = new ApiClient(baseUri);
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while(System.nanoTime() < deadline) {
+            if(!process.isAlive()) {
+                throw new IOException("Application exited with code " + process.exitValue() + ", see app.log");
+            }
+            try {
+                if(client.get("/books", null) == 200) {
+                    return;
+                }
+            } catch(IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(500);
+        }
+        throw new IOException("Application not ready after " + STARTUP_TIMEOUT.toSeconds() + " s, see app.log");
+    }
+
+    @Override
+    public void close() throws IOException {
+        process.destroy();
+        try {
+            if(!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch(InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+        postgres.close();
+
+        try(Stream<Path> files = Files.walk(workDir)) {
+            for(Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+
+/**
+ * Open-model load generator: requests are started at a fixed rate whether or not earlier ones have finished,
+ * like independent app users, so a slow server builds up a backlog instead of slowing the test down.
+ * <p>
+ * Latency is measured from the moment a request was scheduled to start, not from when it was actually sent,
+ * so time spent queued behind a stalled server is counted (no coordinated omission).
+ * Each request runs on its own virtual thread. Results are recorded per operation in HdrHistograms
+ * (microseconds), requests started during the warm-up are not recorded.
+ */
+final class LoadDriver {
+
+    /**
+     * One kind of request in the traffic mix.
+     */
+    @FunctionalInterface
+    interface Operation {
+        /**
+         * @return the HTTP status code
+         */
+        int execute(SplittableRandom random) throws Exception;
+    }
+
+    // Upper bound of the histograms, slower requests are clamped to it
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    private final Map<String, Operation> operations;
+    private final String[] schedule;
+    private final int rps;
+    private final Semaphore inFlight;
+    private final Map<String, Result> results = new LinkedHashMap<>();
+
+    private long measureStartMillis;
+    private long measureEndMillis;
+
+    /**
+     * Recorded latencies and errors of one operation.
+     */
+    static final class Result {
+        final Histogram latency = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+        final LongAdder errors = new LongAdder();
+        // Requests not started because max-in-flight was reached (counted as errors too)
+        final LongAdder dropped = new LongAdder();
+    }
+
+    /**
+     * @param operations the operations by name
+     * @param weights relative weight of each operation in the mix
+     * @param rps requests started per second
+     * @param maxInFlight requests allowed to be outstanding at once, the rest is dropped and counted as errors
+     */
+    LoadDriver(Map<String, Operation> operations, Map<String, Integer> weights, int rps, int maxInFlight) {
+        this.operations = operations;
+        this.rps = rps;
+        this.inFlight = new Semaphore(maxInFlight);
+
+        // Weighted round of operation names, drawn from at random for every request
+        List<String> round = new ArrayList<>();
+        weights.forEach((name, weight) -> {
+            if(!operations.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown operation in mix: " + name);
+            }
+            for(int i = 0; i < weight; i++) {
+                round.add(name);
+            }
+            results.put(name, new Result());
+        });
+        if(round.isEmpty()) {
+            throw new IllegalArgumentException("The mix is empty");
+        }
+        this.schedule = round.toArray(String[]::new);
+    }
+
+    /**
+     * Runs the warm-up and the measured period, then waits for the outstanding requests.
+     * @param warmupSeconds seconds of load that are not recorded
+     * @param durationSeconds seconds of load that are recorded
+     * @param seed seed of the operation choice, for repeatable mixes
+     */
+    void run(int warmupSeconds, int durationSeconds, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rps;
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        measureStartMillis = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(warmupSeconds);
+
+        try(ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for(long i = 0; ; i++) {
+                long intended = start + i * intervalNanos;
+                if(intended >= end) {
+                    break;
+                }
+                long wait = intended - System.nanoTime();
+                if(wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+
+                String name = schedule[random.nextInt(schedule.length)];
+                Result result = results.get(name);
+                boolean measured = intended >= measureFrom;
+                if(!inFlight.tryAcquire()) {
+                    if(measured) {
+                        result.dropped.increment();
+                        result.errors.increment();
+                    }
+                    continue;
+                }
+
+                SplittableRandom requestRandom = random.split();
+                executor.execute(() -> {
+                    try {
+                        int status = execute(operations.get(name), requestRandom);
+                        if(measured) {
+                            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended);
+                            result.latency.recordValue(Math.min(micros, MAX_LATENCY_MICROS));
+                            if(status < 200 || status >= 400) {
+                                result.errors.increment();
+                            }
+                        }
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            measureEndMillis = System.currentTimeMillis();
+        } // Closing the executor waits for the outstanding requests
+    }
+
+    private static int execute(Operation operation, SplittableRandom random) {
+        try {
+            return operation.execute(random);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } catch(Exception e) {
+            return -1; // Connection refused, timeout...
+        }
+    }
+
+    /**
+     * Prints throughput, error count and latency percentiles of every operation.
+     */
+    void printSummary(PrintStream out) {
+        double seconds = Math.max(1, measureEndMillis - measureStartMillis) / 1000.0;
+        out.printf("%-10s %9s %9s %8s %9s %9s %9s %9s %9s%n",
+                "operation", "requests", "req/s", "errors", "p50 ms", "p95 ms", "p99 ms", "p99.9 ms", "max ms");
+        results.forEach((name, result) -> {
+            Histogram latency = result.latency;
+            out.printf("%-10s %9d %9.1f %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    name,
+                    latency.getTotalCount(),
+                    latency.getTotalCount() / seconds,
+                    result.errors.sum(),
+                    millis(latency.getValueAtPercentile(50)),
+                    millis(latency.getValueAtPercentile(95)),
+                    millis(latency.getValueAtPercentile(99)),
+                    millis(latency.getValueAtPercentile(99.9)),
+                    millis(latency.getMaxValue()));
+            if(result.dropped.sum() > 0) {
+                out.printf("%-10s %d request(s) dropped at max-in-flight%n", "", result.dropped.sum());
+            }
+        });
+    }
+
+    /**
+     * Writes the histograms as an HdrHistogram log (one tagged interval per operation),
+     * readable with HistogramLogProcessor or HdrHistogram's online plotter to compare runs.
+     */
+    void writeHistogramLog(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try(PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            HistogramLogWriter writer = new HistogramLogWriter(out);
+            writer.outputLogFormatVersion();
+            writer.outputStartTime(measureStartMillis);
+            writer.setBaseTime(measureStartMillis);
+            writer.outputLegend();
+            results.forEach((name, result) -> {
+                Histogram latency = result.latency;
+                latency.setTag(name);
+                latency.setStartTimeStamp(measureStartMillis);
+                latency.setEndTimeStamp(measureEndMillis);
+                writer.outputIntervalHistogram(latency);
+            });
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,216 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.loadtest;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.imageio.ImageIO;
+
+/**
+ * End-to-end load test of the backend.
+ * <p>
+ * Starts the application against an embedded PostgreSQL (or targets a running instance with --target),
+ * creates users and an initial catalog, then replays a weighted mix of the app's requests at a fixed rate
+ * and reports latency percentiles per operation.
+ * <p>
+ * Run it with {@code ./gradlew loadtest -PloadtestArgs="--rps=200 --duration=60"}. Options (all optional):
+ * <ul>
+ *     <li>--rps: requests started per second (default 100)</li>
+ *     <li>--warmup / --duration: seconds of unrecorded and recorded load (default 15 / 60)</li>
+ *     <li>--mix: operation weights, e.g. login:5,catalog:15,unread:30,markRead:20,download:25,upload:5</li>
+ *     <li>--users / --books: users and books created before the run (default 50 / 20)</li>
+ *     <li>--pdf-kb: size of the uploaded PDFs (default 512)</li>
+ *     <li>--max-in-flight: outstanding requests before new ones are dropped (default 10000)</li>
+ *     <li>--virtual-threads: start the embedded application in virtual-thread mode (default false)</li>
+ *     <li>--jvm-args: space-separated JVM options for the embedded application, e.g. "-Xmx512m"</li>
+ *     <li>--target: base URL of an already running backend, with --admin-email / --admin-password</li>
+ *     <li>--seed: seed of the request mix (default 42)</li>
+ *     <li>--output: directory for the histogram log and the application log (default build/loadtest)</li>
+ * </ul>
+ */
+public final class LoadTestRunner {
+
+    private static final String DEFAULT_MIX = "login:5,catalog:15,unread:30,markRead:20,download:25,upload:5";
+    private static final String PASSWORD = "loadtest-password";
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int rps = Integer.parseInt(options.getOrDefault("rps", "100"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "15"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "60"));
+        int userCount = Integer.parseInt(options.getOrDefault("users", "50"));
+        int bookCount = Integer.parseInt(options.getOrDefault("books", "20"));
+        int pdfKb = Integer.parseInt(options.getOrDefault("pdf-kb", "512"));
+        int maxInFlight = Integer.parseInt(options.getOrDefault("max-in-flight", "10000"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        Path output = Paths.get(options.getOrDefault("output", "build/loadtest")).toAbsolutePath();
+        Files.createDirectories(output);
+
+        EmbeddedBackend backend = null;
+        URI target;
+        String adminEmail;
+        String adminPassword;
+        if(options.containsKey("target")) {
+            target = URI.create(options.get("target"));
+            adminEmail = options.get("admin-email");
+            adminPassword = options.get("admin-password");
+        } else {
+            System.out.println("Starting embedded PostgreSQL and the application...");
+            List<String> jvmArgs = options.containsKey("jvm-args")
+                    ? Arrays.asList(options.get("jvm-args").trim().split("\\s+"))
+                    : List.of();
+            backend = EmbeddedBackend.start(output, Boolean.parseBoolean(options.getOrDefault("virtual-threads", "false")),
+                    jvmArgs);
+            target = backend.getBaseUri();
+            adminEmail = EmbeddedBackend.ADMIN_EMAIL;
+            adminPassword = EmbeddedBackend.ADMIN_PASSWORD;
+        }
+
+        try {
+            ApiClient client = new ApiClient(target);
+            byte[] cover = coverImage();
+
+            // Fixture: an admin session, users with a session each, and a catalog to read from
+            String adminToken = client.login(adminEmail, adminPassword);
+            if(adminToken == null) {
+                throw new IllegalStateException("Admin login failed for " + adminEmail);
+            }
+            long runId = System.currentTimeMillis();
+            List<String> emails = new ArrayList<>(userCount);
+            List<String> tokens = new ArrayList<>(userCount);
+            for(int i = 0; i < userCount; i++) {
+                String email = "loadtest-" + runId + "-" + i + "@ebook.com";
+                client.signup(email, PASSWORD);
+                String token = client.login(email, PASSWORD);
+                if(token == null) {
+                    throw new IllegalStateException("Login failed for " + email);
+                }
+                emails.add(email);
+                tokens.add(token);
+            }
+            for(int i = 0; i < bookCount; i++) {
+                int status = client.uploadBook(adminToken, "Load test book " + i, "Author " + (i % 7),
+                        pdf(pdfKb), cover);
+                if(status != 200) {
+                    throw new IllegalStateException("Book upload answered " + status);
+                }
+            }
+            List<Long> bookIds = new ArrayList<>();
+            List<URI> pdfUrls = new ArrayList<>();
+            for(Map<String, Object> book : client.listBooks()) {
+                bookIds.add(((Number) book.getOrDefault("id", book.get("ID"))).longValue());
+                pdfUrls.add(URI.create((String) book.get("pdfUrl")));
+            }
+            if(bookIds.isEmpty()) {
+                throw new IllegalStateException("The catalog is empty, use --books to create some");
+            }
+
+            Map<String, LoadDriver.Operation> operations = new LinkedHashMap<>();
+            operations.put("login", random -> {
+                String email = emails.get(random.nextInt(emails.size()));
+                return client.login(email, PASSWORD) != null ? 200 : 401;
+            });
+            operations.put("catalog", random -> client.get("/books", null));
+            operations.put("unread", random -> client.get("/books/unread?limit=50", pick(tokens, random)));
+            operations.put("markRead", random -> client.put("/books/" + pick(bookIds, random) + "/mark-read",
+                    pick(tokens, random)));
+            operations.put("download", random -> client.get(pick(pdfUrls, random), null));
+            operations.put("upload", random -> client.uploadBook(adminToken, "Load test upload", "Load test",
+                    pdf(pdfKb), cover));
+
+            LoadDriver driver = new LoadDriver(operations, parseMix(options.getOrDefault("mix", DEFAULT_MIX)),
+                    rps, maxInFlight);
+            System.out.printf("Running %d req/s for %d s (+%d s warm-up) against %s%n", rps, duration, warmup, target);
+            driver.run(warmup, duration, seed);
+
+            driver.printSummary(System.out);
+            Path histogramLog = output.resolve("latency-" + runId + ".hlog");
+            driver.writeHistogramLog(histogramLog);
+            System.out.println("Histogram log: " + histogramLog);
+        } finally {
+            if(backend != null) {
+                backend.close();
+            }
+        }
+    }
+
+    private static <T> T pick(List<T> values, SplittableRandom random) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    /**
+     * "--key=value" arguments to a map, a bare "--flag" means "true".
+     */
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for(String arg : args) {
+            if(!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Expected --key=value, got: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            if(separator < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * "login:5,catalog:15" to operation weights.
+     */
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for(String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            weights.put(parts[0], parts.length > 1 ? Integer.parseInt(parts[1]) : 1);
+        }
+        return weights;
+    }
+
+    /**
+     * A PDF-looking file of the given size with random content, so that every upload is stored
+     * as a new file instead of being deduplicated.
+     */
+    private static byte[] pdf(int sizeKb) {
+        byte[] header = "%PDF-1.4\n".getBytes(StandardCharsets.US_ASCII);
+        byte[] trailer = "\n%%EOF\n".getBytes(StandardCharsets.US_ASCII);
+        byte[] pdf = new byte[Math.max(header.length + trailer.length, sizeKb * 1024)];
+        ThreadLocalRandom.current().nextBytes(pdf);
+        System.arraycopy(header, 0, pdf, 0, header.length);
+        System.arraycopy(trailer, 0, pdf, pdf.length - trailer.length, trailer.length);
+        return pdf;
+    }
+
+    /**
+     * A 600x900 PNG cover, large enough for the thumbnail generator to have work to do.
+     */
+    private static byte[] coverImage() throws IOException {
+        BufferedImage image = new BufferedImage(600, 900, BufferedImage.TYPE_INT_RGB);
+        for(int y = 0; y < image.getHeight(); y++) {
+            for(int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, new Color(x % 256, y % 256, (x * y) % 256).getRGB());
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -5,6 +5,7 @@ import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -16,6 +17,7 @@ import javax.annotation.PostConstruct;
  */
 @SuppressWarnings("unused")
 @Configuration
+@Profile("!loadtest") // No Firebase credentials in load tests
 public class FirebaseConfig {
 
     /**
@@ -0,0 +1,13 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables @Scheduled background jobs (e.g. the outbox relay).
+ */
+@SuppressWarnings("unused")
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -2,6 +2,7 @@ package com.horizon.ebooklibrary.ebooklibrarybackend.config;
 
 import com.horizon.ebooklibrary.ebooklibrarybackend.security.JwtAuthFilter;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -15,6 +16,8 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 
 import lombok.RequiredArgsConstructor;
 
@@ -34,10 +37,19 @@ public class SecurityConfig {
 
     private final JwtAuthFilter jwtAuthFilter; // Injecting JWT filter
 
+    // Port of the actuator endpoints, not published outside the container network (-1 = none of its own)
+    @Value("${management.server.port:-1}")
+    private int managementPort;
+
+    @Value("${server.port:8080}")
+    private int serverPort;
+
     /**
      * Defines security configurations for the application.
      * Public: /auth/** and /books/** for read-only access.
      * Admin: /admin/**
+     * Monitoring: /actuator/health is public, /actuator/prometheus only on the management port
+     * (reachable by Prometheus on the internal network), admins only anywhere else.
      * Protected: All other endpoints.
      * @param http The HttpSecurity object for configuring security settings.
      * @return The configured SecurityFilterChain.
@@ -54,6 +66,9 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.DELETE, "/books/**").hasRole("ADMIN") //only admins can delete
                         .requestMatchers("/files/**").permitAll() // allow public access to served PDFs
                         .requestMatchers("/admin/**").hasRole("ADMIN") // admin only access
+                        .requestMatchers(HttpMethod.GET, "/actuator/health").permitAll() // liveness probes
+                        .requestMatchers(onManagementPort("/actuator/prometheus")).permitAll() // internal scraping
+                        .requestMatchers("/actuator/**").hasRole("ADMIN") // metrics reveal traffic and internals
                         .anyRequest().authenticated() // Protect all other endpoints
                 )
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS)) // Stateless session
@@ -62,13 +77,27 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * Matches GET requests for the path that arrived on a management port of its own
+     * (never when the actuator shares the application port).
+     * @param path the endpoint path
+     * @return the request matcher
+     */
+    private RequestMatcher onManagementPort(String path) {
+        RequestMatcher pathMatcher = AntPathRequestMatcher.antMatcher(HttpMethod.GET, path);
+        return request -> managementPort > 0 && managementPort != serverPort
+                && request.getLocalPort() == managementPort && pathMatcher.matches(request);
+    }
+
     /**
      * Provides password hashing via BCrypt.
+     * Stored hashes with a lower cost are upgraded on the next successful login.
+     * @param strength the BCrypt cost (log2 rounds)
      * @return A PasswordEncoder instance.
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${security.bcrypt.strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 
     /**
@@ -1,24 +0,0 @@
-package com.horizon.ebooklibrary.ebooklibrarybackend.config;
-
-import org.springframework.context.annotation.Configuration;
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
-import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
-
-import java.nio.file.Paths;
-
-/**
- * Configuration class to serve uploaded files as the static resources.
- */
-@SuppressWarnings("unused")
-@Configuration
-public class WebConfig implements WebMvcConfigurer {
-
-    @Override
-    public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        // Serve files under /uploads/ from the filesystem path
-        String uploadPath = Paths.get("uploads").toAbsolutePath().toUri().toString();
-
-        registry.addResourceHandler("/files/**")
-                .addResourceLocations(uploadPath);
-    }
-}
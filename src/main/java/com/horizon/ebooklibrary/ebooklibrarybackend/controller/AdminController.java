@@ -0,0 +1,146 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.controller;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.dto.BookImportResult;
+import com.horizon.ebooklibrary.ebooklibrarybackend.dto.ReconcileReport;
+import com.horizon.ebooklibrary.ebooklibrarybackend.dto.ScrubReport;
+import com.horizon.ebooklibrary.ebooklibrarybackend.service.BookImportService;
+import com.horizon.ebooklibrary.ebooklibrarybackend.service.ReadStateIndex;
+import com.horizon.ebooklibrary.ebooklibrarybackend.service.StorageReconciler;
+import com.horizon.ebooklibrary.ebooklibrarybackend.service.ThumbnailService;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.zip.ZipException;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * REST controller for operational endpoints used by admins.
+ * All endpoints live under /admin/** and are restricted to the ADMIN role.
+ */
+@SuppressWarnings("unused")
+@Slf4j
+@RestController
+@RequestMapping("/admin")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminController {
+
+    private final ReadStateIndex readStateIndex;
+    private final ThumbnailService thumbnailService;
+    private final BookImportService bookImportService;
+    private final StorageReconciler storageReconciler;
+
+    /**
+     * Memory report of the in-memory read-state index, used to size the heap.
+     * @return number of users, total/average/max bitmap bytes per user.
+     */
+    @GetMapping("/read-index/stats")
+    public ResponseEntity<Map<String, Object>> getReadIndexStats() {
+        return ResponseEntity.ok(readStateIndex.getStats());
+    }
+
+    /**
+     * Memory used by a single user's read bitmap.
+     * @param userId ID of the user.
+     * @return the bitmap size in bytes.
+     */
+    @GetMapping("/read-index/users/{userId}")
+    public ResponseEntity<Map<String, Long>> getReadIndexUserSize(@PathVariable Long userId) {
+        return ResponseEntity.ok(Map.of("bytes", readStateIndex.getSizeInBytes(userId)));
+    }
+
+    /**
+     * Starts a background pass generating the missing cover thumbnails of all uploaded images.
+     * @return '202 Accepted' once started, or '409 Conflict' if a backfill is already running.
+     */
+    @PostMapping("/thumbnails/backfill")
+    public ResponseEntity<Map<String, Boolean>> backfillThumbnails() {
+        if(!thumbnailService.startBackfill()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("started", false));
+        }
+        return ResponseEntity.accepted().body(Map.of("started", true));
+    }
+
+    /**
+     * Starts a background pass quarantining and deleting upload files no book references.
+     * @return '202 Accepted' once started, or '409 Conflict' if a pass is already running.
+     */
+    @PostMapping("/storage/reconcile")
+    public ResponseEntity<Map<String, Boolean>> reconcileStorage() {
+        if(!storageReconciler.startReconcile()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("started", false));
+        }
+        return ResponseEntity.accepted().body(Map.of("started", true));
+    }
+
+    /**
+     * Report of the last finished reconcile pass.
+     * @return the report, or '204 No Content' if no pass finished yet.
+     */
+    @GetMapping("/storage/reconcile")
+    public ResponseEntity<ReconcileReport> getReconcileReport() {
+        ReconcileReport report = storageReconciler.getLastReconcile();
+        return report == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(report);
+    }
+
+    /**
+     * Starts a background checksum verification of all content-addressed files.
+     * @return '202 Accepted' once started, or '409 Conflict' if a scrub is already running.
+     */
+    @PostMapping("/storage/scrub")
+    public ResponseEntity<Map<String, Boolean>> scrubStorage() {
+        if(!storageReconciler.startScrub()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("started", false));
+        }
+        return ResponseEntity.accepted().body(Map.of("started", true));
+    }
+
+    /**
+     * Report of the last finished scrub, including the corrupt files found.
+     * @return the report, or '204 No Content' if no scrub finished yet.
+     */
+    @GetMapping("/storage/scrub")
+    public ResponseEntity<ScrubReport> getScrubReport() {
+        ScrubReport report = storageReconciler.getLastScrub();
+        return report == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(report);
+    }
+
+    /**
+     * Imports many books at once from a ZIP archive sent as the raw request body (not multipart).
+     * The archive starts with a manifest.json, a JSON array of {title, author, description, cover, pdf}
+     * where cover and pdf are paths inside the archive, followed by those files.
+     * It is processed as a stream, only the referenced files are stored, within books.import.max-file-size
+     * per file, books.import.max-total-bytes per archive and books.import.max-entries entries.
+     * @param request the request whose body is the archive.
+     * @return '200 OK' with the status of every item, '400 Bad Request' if the archive or its manifest is invalid,
+     * or '500 Internal Server Error' if it couldn't be read or stored.
+     */
+    @PostMapping(value = "/books/import", consumes = {"application/zip", "application/octet-stream"})
+    public ResponseEntity<BookImportResult> importBooks(HttpServletRequest request) {
+        try {
+            BookImportResult result = bookImportService.importArchive(request.getInputStream());
+            if(result.getError() != null) {
+                return ResponseEntity.badRequest().body(result);
+            }
+            return ResponseEntity.ok(result);
+        } catch(ZipException e) {
+            return ResponseEntity.badRequest().body(BookImportResult.rejected("Invalid ZIP archive: " + e.getMessage()));
+        } catch(IOException e) {
+            log.error("Book import failed", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(BookImportResult.rejected("The archive could not be read or stored"));
+        }
+    }
+}
@@ -3,7 +3,11 @@ package com.horizon.ebooklibrary.ebooklibrarybackend.controller;
 import com.horizon.ebooklibrary.ebooklibrarybackend.dto.LoginResponse;
 import com.horizon.ebooklibrary.ebooklibrarybackend.entity.User;
 import com.horizon.ebooklibrary.ebooklibrarybackend.security.JwtUtils;
+import com.horizon.ebooklibrary.ebooklibrarybackend.service.PasswordHashingBusyException;
 import com.horizon.ebooklibrary.ebooklibrarybackend.service.UserService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -28,6 +32,10 @@ public class AuthController {
     private final UserService userService;
     private final JwtUtils jwtUtils;
 
+    // Seconds a client should wait before retrying when password hashing is saturated
+    @Value("${security.password-hashing.retry-after-seconds:2}")
+    private int retryAfterSeconds;
+
     /**
      * User registration endpoint.
      * @param user User object containing email and password.
@@ -50,22 +58,16 @@ public class AuthController {
     // LOGIN Endpoint
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody User user) {
-        // Call authenticate() method, which returns the JWT token if successful.
-        String token = userService.authenticate(user.getEmail(), user.getPassword());
-
-        if(token != null) { // if authentication was successful
-            Optional<User> optionalUser = userService.findByEmail(user.getEmail()); //findByEmail() returns Optional<User> - full user record from DB.
+        // Call authenticate() method, which returns the full user record from DB if successful (a single lookup).
+        Optional<User> optionalUser = userService.authenticate(user.getEmail(), user.getPassword());
 
-            if(optionalUser.isPresent()) {
-                User existingUser = optionalUser.get();
-                String refreshToken= jwtUtils.generateRefreshToken(existingUser);
-                String role = existingUser.getRole().name(); // Will return "ADMIN" or "USER"
-
-                return ResponseEntity.ok(new LoginResponse(token, refreshToken, role));
-            } else {
-                return ResponseEntity.status(401).body(Map.of("error", "Invalid credentials"));
-            }
+        if(optionalUser.isPresent()) { // if authentication was successful
+            User existingUser = optionalUser.get();
+            String token = jwtUtils.generateToken(existingUser);
+            String refreshToken= jwtUtils.generateRefreshToken(existingUser);
+            String role = existingUser.getRole().name(); // Will return "ADMIN" or "USER"
 
+            return ResponseEntity.ok(new LoginResponse(token, refreshToken, role));
         } else {
             return ResponseEntity.status(401).body(Map.of("error", "Invalid credentials"));
         }
@@ -103,4 +105,17 @@ public class AuthController {
             return ResponseEntity.status(401).body(Map.of("error", "Invalid refresh token."));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Signup and login answer '503 Service Unavailable' while the password hashing pool is saturated,
+     * with Retry-After telling the client when to try again.
+     * @param e the saturation error
+     * @return 503 with a Retry-After header
+     */
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<Map<String, String>> handlePasswordHashingBusy(PasswordHashingBusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(Map.of("error", "Server is busy. Please try again shortly."));
+    }
+}
@@ -1,9 +1,14 @@
 package com.horizon.ebooklibrary.ebooklibrarybackend.controller;
 
+import com.horizon.ebooklibrary.ebooklibrarybackend.dto.BookPage;
+import com.horizon.ebooklibrary.ebooklibrarybackend.dto.BookSort;
 import com.horizon.ebooklibrary.ebooklibrarybackend.entity.Book;
 import com.horizon.ebooklibrary.ebooklibrarybackend.service.BookService;
+import com.horizon.ebooklibrary.ebooklibrarybackend.service.CatalogSnapshot;
 import com.horizon.ebooklibrary.ebooklibrarybackend.service.UploadService;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -12,8 +17,10 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -36,48 +43,153 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class BookController {
 
+    // Response header carrying the cursor of the next page
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final BookService bookService;
     private final UploadService uploadService;
 
     // Read Methods:
 
+    /*
+     * Pagination of the listing endpoints:
+     * Without 'limit' and 'cursor' the full list is returned, as before.
+     * With either of them a single page is returned, ordered by (sort, id) where sort is id, title or author.
+     * The body stays a JSON array, the cursor of the next page is sent in the X-Next-Cursor header
+     * (absent on the last page). An invalid cursor or sort returns '400 Bad Request'.
+     */
+
     /**
      * Returns a list of all books in the library.
      * This endpoint is public and does not require authentication.
-     * @return List of all books.
+     * The full list is written from the catalog snapshot, already serialized (and gzip-compressed for clients
+     * sending Accept-Encoding: gzip), so serving it neither queries the database nor runs Jackson.
+     * @param sort sort order for paging (id, title or author)
+     * @param cursor cursor from the previous page
+     * @param limit page size
+     * @param webRequest used to answer If-None-Match with the catalog version
+     * @return List of all books, or one page of them.
      */
     @GetMapping
-    public ResponseEntity<List<Book>> getAllBooks() {
-        return ResponseEntity.ok(bookService.getAllBooks());
+    public ResponseEntity<?> getAllBooks(@RequestParam(required = false) String sort,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(required = false) Integer limit,
+                                         WebRequest webRequest) {
+        CatalogSnapshot.Snapshot snapshot = bookService.getCatalogSnapshot();
+
+        if(cursor == null && limit == null) {
+            // Full catalog: the pre-serialized (and pre-compressed) snapshot is written as is
+            boolean gzip = acceptsGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING));
+            String etag = gzip ? snapshot.gzipETag() : snapshot.etag();
+            if(webRequest.checkNotModified(etag)) {
+                return null;
+            }
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .eTag(etag)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if(gzip) {
+                return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.gzip());
+            }
+            return response.body(snapshot.json());
+        }
+
+        // Unchanged catalog: '304 Not Modified' without querying the books
+        if(webRequest.checkNotModified(snapshot.etag())) {
+            return null;
+        }
+        try {
+            return toPageResponse(bookService.getBooksPage(BookSort.fromParam(sort), cursor, limit), snapshot.etag());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     /**
      * Returns a list of books marked as read.
-     * @return list of read books.
+     * @param sort sort order for paging (id, title or author)
+     * @param cursor cursor from the previous page
+     * @param limit page size
+     * @return list of read books, or one page of them.
      */
     @GetMapping("/read")
-    public ResponseEntity<List<Book>> getReadBooks() {
-        return ResponseEntity.ok(bookService.getReadBooks());
+    public ResponseEntity<List<Book>> getReadBooks(@RequestParam(required = false) String sort,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(required = false) Integer limit) {
+        if(cursor == null && limit == null) {
+            return ResponseEntity.ok(bookService.getReadBooks());
+        }
+        try {
+            return toPageResponse(bookService.getReadBooksPage(BookSort.fromParam(sort), cursor, limit), null);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     /**
      * Returns a list of books marked as unread.
-     * @return List of unread books.
+     * @param sort sort order for paging (id, title or author)
+     * @param cursor cursor from the previous page
+     * @param limit page size
+     * @return List of unread books, or one page of them.
      */
     @GetMapping("/unread")
-    public ResponseEntity<List<Book>> getUnreadBooks() {
-        return ResponseEntity.ok(bookService.getUnreadBooks());
+    public ResponseEntity<List<Book>> getUnreadBooks(@RequestParam(required = false) String sort,
+                                                     @RequestParam(required = false) String cursor,
+                                                     @RequestParam(required = false) Integer limit) {
+        if(cursor == null && limit == null) {
+            return ResponseEntity.ok(bookService.getUnreadBooks());
+        }
+        try {
+            return toPageResponse(bookService.getUnreadBooksPage(BookSort.fromParam(sort), cursor, limit), null);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Searches the catalog by title, author and description.
+     * Supports prefixes (as-you-type) and small typos, results are ranked by relevance.
+     * This endpoint is public and does not require authentication.
+     * @param q the search text.
+     * @param limit maximum number of results.
+     * @param webRequest used to answer If-None-Match with the catalog version
+     * @return List of matching books, best match first.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<Book>> searchBooks(@RequestParam("q") String q,
+                                                  @RequestParam(required = false) Integer limit,
+                                                  WebRequest webRequest) {
+        String etag = bookService.getCatalogETag();
+        if(webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(bookService.searchBooks(q, limit));
+    }
+
+    /**
+     * Returns the number of books the user has not read yet (for the app's badge).
+     * @return JSON object with the unread count.
+     */
+    @GetMapping("/unread/count")
+    public ResponseEntity<Map<String, Long>> getUnreadCount() {
+        return ResponseEntity.ok(Map.of("count", bookService.getUnreadCount()));
     }
 
     /**
      * Fetches a single book by it's ID.
      * @param id ID of the book to fetch.
+     * @param webRequest used to answer If-None-Match with the catalog version
      * @return Book if found, 404 otherwise.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Book> getBookById(@PathVariable Long id) {
+    public ResponseEntity<Book> getBookById(@PathVariable Long id, WebRequest webRequest) {
+        String etag = bookService.getCatalogETag();
+        if(webRequest.checkNotModified(etag)) {
+            return null;
+        }
         Optional<Book> book = bookService.getBookById(id);
-        return book.map(ResponseEntity::ok)
+        return book.map(found -> ResponseEntity.ok().eTag(etag).body(found))
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
@@ -169,4 +281,36 @@ public class BookController {
         }
     }
 
+    /**
+     * Builds the response for one page: the books as body and the next cursor as header.
+     * @param etag ETag of the listing, null for per-user listings
+     */
+    private ResponseEntity<List<Book>> toPageResponse(BookPage page, String etag) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if(etag != null) {
+            response.eTag(etag);
+        }
+        if(page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+
+    /**
+     * @param acceptEncoding the Accept-Encoding header, may be null
+     * @return true if the client accepts a gzip-encoded body (and didn't refuse it with q=0)
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if(acceptEncoding == null) {
+            return false;
+        }
+        for(String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if(parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
 }
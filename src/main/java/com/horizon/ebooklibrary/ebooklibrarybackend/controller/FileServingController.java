@@ -1,87 +1,168 @@
 package com.horizon.ebooklibrary.ebooklibrarybackend.controller;
 
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import com.horizon.ebooklibrary.ebooklibrarybackend.service.FileDownloadService;
+import com.horizon.ebooklibrary.ebooklibrarybackend.service.FileETagStore;
+import com.horizon.ebooklibrary.ebooklibrarybackend.service.ThumbnailService;
+import com.horizon.ebooklibrary.ebooklibrarybackend.service.UploadService;
+import com.horizon.ebooklibrary.ebooklibrarybackend.storage.StorageBackend;
+
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
-import java.net.MalformedURLException;
-import java.nio.file.Files;
+import java.io.IOException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.time.Duration;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
 
 
 /**
- * Controller class to serve uploaded PDF files from the filesystem
+ * Controller class to serve uploaded PDF files from the storage backend
  * Allows the android app to load images and pdfs from URLs
  * This controller is what allows those URLs to work by mapping: GET /files/{filename}
+ * Reads are recorded as files.read (duration) and files.read.bytes,
+ * tagged with kind=pdf|image|thumbnail|other and the response status.
  */
 @SuppressWarnings("unused")
 @RestController
 @RequestMapping("/files")
+@RequiredArgsConstructor
 public class FileServingController {
 
-    @Value("${upload.dir}")
-    private String uploadDir;
+    // Uploaded files keep their name for their whole life, so they may be cached for a year
+    private static final String IMMUTABLE_CACHE_CONTROL =
+            CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable().getHeaderValue();
+    // Files that can be overwritten under the same name must be revalidated with the ETag
+    private static final String REVALIDATE_CACHE_CONTROL = CacheControl.noCache().getHeaderValue();
+
+    private final StorageBackend storageBackend;
+    private final FileDownloadService fileDownloadService;
+    private final FileETagStore fileETagStore;
+    private final UploadService uploadService;
+    private final ThumbnailService thumbnailService;
+    private final MeterRegistry meterRegistry;
 
     /**
-     * Serves a PDF file from the local upload directory
+     * Serves a PDF file from the storage backend (upload directory or bucket)
      * <p>
      * URL: GET /files/{filename}
      * Example: /files/cat_wizard.pdf
      * <p>
      * This allows  public access to previously uploaded files,
      * using the URL stored in the Book's 'pdfUrl' field.
+     * Supports HTTP Range requests, so clients can resume downloads or fetch parts of a file (206 Partial Content),
+     * and conditional requests (If-None-Match / If-Modified-Since), answered with '304 Not Modified'
+     * without reading the file.
+     * For cover images, '?w=256' selects the closest pre-sized variant (128/256/512 px by default),
+     * the original is served until the variants have been generated.
      *
      * @param filename The name of the file to retrieve
-     * @return A ResponseEntity containing the PFG as a streamed resource, or an error response
+     * @param width optional width in pixels the client will display an image at
+     * @param request the HTTP request (Range / If-Range and conditional headers)
+     * @param response the HTTP response the file is written to
+     * @throws IOException if writing to the client fails
      */
     @GetMapping("/{filename:.+}") // Match the filename with a dot in it (like .pdf) and let it include extensions
-    public ResponseEntity<Resource> serveFile(@PathVariable String filename) {
+    public void serveFile(@PathVariable String filename,
+                          @RequestParam(value = "w", required = false) Integer width,
+                          HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String kind = "other";
+        long bytes = 0;
         try {
             /*
-             * Resolve the absolute file path
-             * Combines the upload directory path with the requested filename
-             */
-            Path filePath = Paths.get(uploadDir).resolve(filename).normalize();
-
-            /*
-             * Load the file as a Spring Resource from the file system
-             * UrlResource can represent a local file as a downloadable HTTP resource
+             * Look the file up in the storage backend
+             * The filename is used as the storage key, names that aren't plain filenames are rejected
              */
-            Resource resource = new UrlResource(filePath.toUri());
+            StorageBackend.StoredObject object;
+            try {
+                object = storageBackend.stat(filename);
+            } catch(IllegalArgumentException e) {
+                // If the filename was invalid, return '400 Bad Request'
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+                return;
+            }
 
             // Check if the file exists. If it doesn't return '404 Not Found'
-            if(!resource.exists()) {
-                return ResponseEntity.notFound().build();
+            if(object == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+
+            // Downscaled variant of a cover, if one is ready. Files without variants (PDFs) ignore the width.
+            boolean variantPending = false;
+            boolean variantServed = false;
+            String variantKey = width != null ? thumbnailService.variantKey(filename, width) : null;
+            if(variantKey != null) {
+                StorageBackend.StoredObject variant = storageBackend.stat(variantKey);
+                variantPending = variant == null;
+                if(variant != null) {
+                    object = variant;
+                    variantServed = true;
+                }
             }
 
             /*
-             * Attempt to detect the MIME type (e.g. application/pdf)
+             * Derive the MIME type (e.g. application/pdf) from the extension
              * It's useful so that browsers know how to handle the file (open it or download)
              */
-            String contentType = Files.probeContentType(filePath);
-            if(contentType == null) {
-                contentType = "application/pdf"; // fallback: Default to PDF if undetectable
+            String contentType = MediaTypeFactory.getMediaType(object.key())
+                    .map(Object::toString)
+                    .orElse("application/pdf"); // fallback: Default to PDF if undetectable
+            kind = variantServed ? "thumbnail"
+                    : contentType.equals("application/pdf") ? "pdf"
+                    : contentType.startsWith("image/") ? "image" : "other";
+
+            // Validators: the ETag is the SHA-256 recorded at upload time, the file itself isn't read
+            Path localPath = storageBackend.localPath(object.key());
+            String etag = localPath != null ? fileETagStore.getETag(localPath) : fileETagStore.getETag(object);
+            long lastModified = object.lastModified().toEpochMilli();
+            // While the variant is pending the original stands in for it, so that response must be revalidated
+            response.setHeader(HttpHeaders.CACHE_CONTROL, uploadService.isImmutable(filename) && !variantPending
+                    ? IMMUTABLE_CACHE_CONTROL : REVALIDATE_CACHE_CONTROL);
+
+            // Client already has this version: '304 Not Modified' (sets ETag and Last-Modified headers)
+            if(new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+                return;
             }
 
-            // Return the file with HTTP 200 OK and appropriate headers
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType)) // Set Content-Type header
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "inline; filename=\"" + resource.getFilename() + "\"") // Display in-browser
-                    .body(resource); // Body contains the file itself
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    "inline; filename=\"" + filename + "\""); // Display in-browser
 
-        } catch(MalformedURLException e) {
-            // If the file path was invalid, return '400 Bad Request'
-            return ResponseEntity.badRequest().build();
+            // Write the whole file (200 OK) or the requested ranges (206 Partial Content)
+            bytes = fileDownloadService.send(storageBackend, object, contentType, etag, request, response);
 
-        } catch(Exception e) {
-            // A catch-all for any IO or unexpected issues. Returns '500 Internal Server Error'
-            return ResponseEntity.internalServerError().build();
+        } finally {
+            recordRead(sample, kind, response.getStatus(), bytes);
         }
     }
+
+    /**
+     * Records a file read. With sendfile the copy to the socket happens after this method returns,
+     * so the duration covers lookup, validation and headers, and the bytes are those handed to Tomcat.
+     */
+    private void recordRead(Timer.Sample sample, String kind, int status, long bytes) {
+        String statusTag = String.valueOf(status);
+        sample.stop(Timer.builder("files.read")
+                .description("Time to look up, validate and start sending an uploaded file")
+                .tag("kind", kind)
+                .tag("status", statusTag)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+        DistributionSummary.builder("files.read.bytes")
+                .description("Body bytes sent for uploaded files")
+                .baseUnit("bytes")
+                .tag("kind", kind)
+                .tag("status", statusTag)
+                .register(meterRegistry)
+                .record(bytes);
+    }
 }
@@ -0,0 +1,87 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.dto;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.Book;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Opaque keyset cursor over (sort key, book ID).
+ * Clients receive it as a Base64 URL-safe string and send it back unchanged to fetch the next page.
+ * The position is exclusive: the next page starts with the first book ordered after (key, id).
+ */
+@SuppressWarnings("unused")
+@Getter
+@AllArgsConstructor
+public class BookCursor {
+
+    private final BookSort sort;
+    private final String key;
+    private final long id;
+
+    /**
+     * Cursor positioned before the first book of the given order.
+     * @param sort the sort order
+     * @return a cursor that matches every book
+     */
+    public static BookCursor first(BookSort sort) {
+        return new BookCursor(sort, "", Long.MIN_VALUE);
+    }
+
+    /**
+     * Cursor positioned right after the given book.
+     * @param sort the sort order
+     * @param book the last book of the current page
+     * @return the cursor for the next page
+     */
+    public static BookCursor after(BookSort sort, Book book) {
+        return new BookCursor(sort, sort.keyOf(book), book.getID());
+    }
+
+    /**
+     * @param book a book
+     * @return true if the book is ordered after this cursor position
+     */
+    public boolean isBefore(Book book) {
+        int cmp = sort.keyOf(book).compareTo(key);
+        return cmp > 0 || (cmp == 0 && book.getID() > id);
+    }
+
+    /**
+     * @return the opaque string form of this cursor
+     */
+    public String encode() {
+        String raw = sort.name() + "\n" + id + "\n" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor received from a client.
+     * @param value the opaque cursor string
+     * @param sort the sort order requested, must match the order the cursor was created for
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the cursor is malformed or belongs to another sort order
+     */
+    public static BookCursor decode(String value, BookSort sort) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+        } catch(IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+
+        String[] parts = raw.split("\n", 3);
+        if(parts.length != 3 || !parts[0].equals(sort.name())) {
+            throw new IllegalArgumentException("Cursor does not match sort order " + sort.name());
+        }
+
+        try {
+            return new BookCursor(sort, parts[2], Long.parseLong(parts[1]));
+        } catch(NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+}
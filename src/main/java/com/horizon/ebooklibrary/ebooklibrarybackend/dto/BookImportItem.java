@@ -0,0 +1,21 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One book of a bulk import manifest ("manifest.json" in the archive).
+ * cover and pdf are the paths of the files inside the archive.
+ */
+@SuppressWarnings("unused")
+@Getter
+@Setter
+@NoArgsConstructor
+public class BookImportItem {
+    private String title;
+    private String author;
+    private String description;
+    private String cover;
+    private String pdf;
+}
@@ -0,0 +1,45 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Outcome of a bulk import: totals and the status of every manifest item, in manifest order.
+ * error is set on the whole result when the archive itself couldn't be processed.
+ */
+@SuppressWarnings("unused")
+@Getter
+@AllArgsConstructor
+public class BookImportResult {
+
+    public enum Status { IMPORTED, FAILED }
+
+    private final int imported;
+    private final int failed;
+    private final List<Item> items;
+    private final String error;
+
+    /**
+     * Status of one manifest item.
+     * bookId is set for imported books, error for failed ones.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Item {
+        private final int index;
+        private final String title;
+        private final Status status;
+        private final Long bookId;
+        private final String error;
+    }
+
+    /**
+     * @param error why the archive was rejected
+     * @return a result without items
+     */
+    public static BookImportResult rejected(String error) {
+        return new BookImportResult(0, 0, List.of(), error);
+    }
+}
@@ -0,0 +1,20 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.dto;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.Book;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One page of a keyset-paginated book listing.
+ * nextCursor is null when this is the last page.
+ */
+@SuppressWarnings("unused")
+@Getter
+@AllArgsConstructor
+public class BookPage {
+    private final List<Book> items;
+    private final String nextCursor;
+}
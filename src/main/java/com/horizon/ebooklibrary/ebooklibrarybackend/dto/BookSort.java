@@ -0,0 +1,56 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.dto;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.Book;
+
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Sort orders supported by the paginated book listings.
+ * Every order is made total by using the book ID as tie-breaker, which keeps keyset pagination stable.
+ * Keys compare with String.compareTo, the database sorts title and author the same way through their "C" collation
+ * (SortCollationInitializer), so cursors stay valid between the in-memory and the database paths.
+ */
+@SuppressWarnings("unused")
+public enum BookSort {
+    ID(book -> ""),
+    TITLE(Book::getTitle),
+    AUTHOR(Book::getAuthor);
+
+    private final Function<Book, String> keyExtractor;
+    private final Comparator<Book> comparator;
+
+    BookSort(Function<Book, String> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+        this.comparator = Comparator.comparing(keyExtractor).thenComparingLong(Book::getID);
+    }
+
+    /**
+     * @param book the book
+     * @return the sort key of the book ("" for ID order, where the ID alone is the key)
+     */
+    public String keyOf(Book book) {
+        return keyExtractor.apply(book);
+    }
+
+    /**
+     * @return comparator ordering books by (sort key, ID)
+     */
+    public Comparator<Book> comparator() {
+        return comparator;
+    }
+
+    /**
+     * Parses the "sort" request parameter (case-insensitive).
+     * @param value the parameter value, null means ID
+     * @return the matching sort order
+     * @throws IllegalArgumentException for unknown values
+     */
+    public static BookSort fromParam(String value) {
+        if(value == null || value.isBlank()) {
+            return ID;
+        }
+        return BookSort.valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,37 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.dto;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.Book;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Read-only projection of a book's columns, built directly by JPQL constructor expressions
+ * ("select new ...BookSummary(...)"). No entity is loaded, so nothing is added to the persistence context
+ * and no association (users, read marks) can be fetched by accident.
+ */
+@SuppressWarnings("unused")
+@Getter
+@AllArgsConstructor
+public class BookSummary {
+    private final long id;
+    private final String title;
+    private final String author;
+    private final String description;
+    private final String coverUrl;
+    private final String pdfUrl;
+
+    /**
+     * @return a detached Book with the same values, for listings that share code with the in-memory index
+     */
+    public Book toBook() {
+        return Book.builder()
+                .ID(id)
+                .title(title)
+                .author(author)
+                .description(description)
+                .coverUrl(coverUrl)
+                .pdfUrl(pdfUrl)
+                .build();
+    }
+}
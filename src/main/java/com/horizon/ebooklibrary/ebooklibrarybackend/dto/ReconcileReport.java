@@ -0,0 +1,23 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.dto;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Outcome of one pass of the upload-directory reconciler (see StorageReconciler).
+ * bytesReclaimed counts the orphans and abandoned temporary files deleted in this pass.
+ */
+@SuppressWarnings("unused")
+@Getter
+@AllArgsConstructor
+public class ReconcileReport {
+    private final Instant startedAt;
+    private final long durationMs;
+    private final long filesScanned;
+    private final long orphansQuarantined;
+    private final long filesRestored;
+    private final long filesDeleted;
+    private final long bytesReclaimed;
+}
@@ -0,0 +1,22 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Outcome of one checksum scrub of the stored files (see StorageReconciler).
+ * corruptFiles lists the files whose content no longer matches the SHA-256 they are named after.
+ */
+@SuppressWarnings("unused")
+@Getter
+@AllArgsConstructor
+public class ScrubReport {
+    private final Instant startedAt;
+    private final long durationMs;
+    private final long filesVerified;
+    private final long bytesVerified;
+    private final List<String> corruptFiles;
+}
@@ -2,15 +2,21 @@ package com.horizon.ebooklibrary.ebooklibrarybackend.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import java.util.List;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -20,7 +26,14 @@ import lombok.Setter;
 
 @SuppressWarnings("unused")
 @Entity
-@Table(name = "books")
+@Cacheable // Second-level cache: books are read constantly and almost never change (see hibernate-cache.conf)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name = "books", indexes = {
+        // Support the keyset pagination queries in BookRepository (title and author use the "C" collation,
+        // see SortCollationInitializer)
+        @Index(name = "idx_books_title_id", columnList = "title, id"),
+        @Index(name = "idx_books_author_id", columnList = "author, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -29,7 +42,9 @@ import lombok.Setter;
 public class Book {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY) // Auto increment ID
+    // Pooled sequence: ids are reserved 50 at a time, so inserts can be batched (IDENTITY disables batching)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "books_seq")
+    @SequenceGenerator(name = "books_seq", sequenceName = "books_seq", allocationSize = 50)
     private long ID;
 
     @Column(nullable = false)
@@ -47,7 +62,8 @@ public class Book {
     @Column(nullable = false)
     private String pdfUrl; // URL to access a book file
 
-    @OneToMany(mappedBy = "book", cascade = CascadeType.ALL, orphanRemoval = true)
+    // Never cascaded by Hibernate: the database removes them with the book (ON DELETE CASCADE on user_books)
+    @OneToMany(mappedBy = "book")
     @JsonIgnore
     private List<UserBook> userBooks;
 }
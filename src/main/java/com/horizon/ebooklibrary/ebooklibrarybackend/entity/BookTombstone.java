@@ -0,0 +1,78 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Entity recording a deleted book whose files still have to be removed.
+ * Written in the same transaction that deletes the book, so the files of a committed deletion are never forgotten.
+ * FileReclaimer removes the files afterward (with retries) and sets reclaimedAt, or failedAt once it gives up.
+ */
+@SuppressWarnings("unused")
+@Entity
+@Table(name = "book_tombstones", indexes = {
+        // The reclaimer only looks for unreclaimed rows that are due
+        @Index(name = "idx_book_tombstones_pending", columnList = "reclaimed_at, failed_at, available_at, id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BookTombstone implements LeasedTask {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_tombstones_seq")
+    @SequenceGenerator(name = "book_tombstones_seq", sequenceName = "book_tombstones_seq", allocationSize = 50)
+    private Long id;
+
+    /**
+     * The deleted book and the files it used.
+     */
+    @Column(nullable = false)
+    private long bookId;
+
+    @Column(nullable = false)
+    private String coverUrl;
+
+    @Column(nullable = false)
+    private String pdfUrl;
+
+    @Column(nullable = false)
+    private Instant deletedAt;
+
+    /**
+     * The row can't be claimed before this time (lease while being reclaimed, backoff after a failure).
+     */
+    @Column(nullable = false)
+    private Instant availableAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(length = 500)
+    private String lastError;
+
+    /**
+     * Set once the files were removed, null while pending.
+     */
+    private Instant reclaimedAt;
+
+    /**
+     * Set when the reclaimer gave up on the files after max-attempts, lastError says why.
+     */
+    private Instant failedAt;
+}
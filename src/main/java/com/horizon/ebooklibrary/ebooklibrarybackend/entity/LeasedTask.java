@@ -0,0 +1,19 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.entity;
+
+import java.time.Instant;
+
+/**
+ * A row of a work table polled by a background job through LeasedTaskQueue (OutboxEvent, BookTombstone).
+ * The row is pending until it is done or failed: availableAt holds it back while it is leased or backing off,
+ * and failedAt is set once it was given up on after too many attempts.
+ */
+public interface LeasedTask {
+
+    Long getId();
+
+    int getAttempts();
+
+    void setAttempts(int attempts);
+
+    void setAvailableAt(Instant availableAt);
+}
@@ -0,0 +1,98 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Entity representing a push notification that has to be sent because of a committed change (transactional outbox).
+ * Rows are written in the same transaction as the change itself, so a notification exists if and only if the change
+ * was committed. OutboxRelay delivers them afterward and sets processedAt, or failedAt once it gives up.
+ */
+@SuppressWarnings("unused")
+@Entity
+@Table(name = "outbox_events", indexes = {
+        // The relay only looks for unprocessed rows that are due
+        @Index(name = "idx_outbox_events_pending", columnList = "processed_at, failed_at, available_at, id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent implements LeasedTask {
+
+    public static final String TYPE_NEW_BOOK = "NEW_BOOK";
+    // Digest of a bulk import, aggregateId is the first imported book
+    public static final String TYPE_BOOKS_IMPORTED = "BOOKS_IMPORTED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_events_seq")
+    @SequenceGenerator(name = "outbox_events_seq", sequenceName = "outbox_events_seq", allocationSize = 50)
+    private Long id;
+
+    /**
+     * Unique key sent along with the notification, so that a redelivered notification can be recognized as a duplicate.
+     */
+    @Column(nullable = false, unique = true, length = 36)
+    private String idempotencyKey;
+
+    /**
+     * Kind of event (e.g. NEW_BOOK) and the ID of the entity it is about.
+     */
+    @Column(nullable = false, length = 32)
+    private String eventType;
+
+    @Column(nullable = false)
+    private long aggregateId;
+
+    /**
+     * The notification itself: FCM topic, title and body.
+     */
+    @Column(nullable = false)
+    private String topic;
+
+    @Column(nullable = false)
+    private String title;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String body;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    /**
+     * The row can't be claimed before this time. Moved forward while a relay holds the row (lease)
+     * and after a failed attempt (backoff).
+     */
+    @Column(nullable = false)
+    private Instant availableAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(length = 500)
+    private String lastError;
+
+    /**
+     * Set once the notification was delivered, null while pending.
+     */
+    private Instant processedAt;
+
+    /**
+     * Set when the relay gave up on the notification after max-attempts, lastError says why.
+     */
+    private Instant failedAt;
+}
@@ -27,10 +27,11 @@ public class User {
 
     /**
      * Unique identifier for each user.
-     * Auto incremented by the database
+     * Taken from the users_seq sequence, 50 at a time
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -5,10 +5,12 @@ import org.hibernate.annotations.OnDeleteAction;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -19,7 +21,8 @@ import lombok.Setter;
 /**
  * Entity representing the relationship between a User and a Book,
  * including the user's reading status for that specific book.
- * This allow sus to track which books each user has read or not.
+ * Storage is sparse: a row only exists once the user marks the book as read,
+ * a book without a row is unread for that user.
  */
 @SuppressWarnings("unused")
 @Entity
@@ -35,27 +38,31 @@ public class UserBook {
      * Unique ID for this user-book relationship
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_books_seq")
+    @SequenceGenerator(name = "user_books_seq", sequenceName = "user_books_seq", allocationSize = 50)
     private Long id;
 
     /**
      * The User who owns this book relationship.
      * Many UseBook entries can point to the same User.
+     * Lazy: read marks are looked up by user, the User itself is never needed.
      */
-    @ManyToOne(optional = false)
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @OnDelete(action = OnDeleteAction.CASCADE)
     private User user;
 
     /**
      * The Book that is being tracked for the user.
      * Many UserBook entries can point to the same Book.
+     * Lazy: listings read books through projections (see UserBookRepository), not through this association.
      */
-    @ManyToOne(optional = false)
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @OnDelete(action = OnDeleteAction.CASCADE)
     private Book book;
 
     /**
      * Whether this User has marked the book as read.
+     * Always true for rows written by the sparse model, false rows are legacy data removed by UserBookSparseMigration.
      */
     @Column(nullable = false)
     private boolean read;
@@ -0,0 +1,25 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.event;
+
+import org.springframework.context.ApplicationEvent;
+
+import lombok.Getter;
+
+/**
+ * Spring application event signaling that a book was deleted.
+ * Used to remove it from the in-memory indexes and the catalog snapshot once the deletion committed.
+ */
+@Getter
+public class BookDeletedEvent extends ApplicationEvent {
+
+    private final long bookId;
+
+    /**
+     * Construct a new BookDeletedEvent
+     * @param source the object on which the event initially occurred ('this' from publisher)
+     * @param bookId the ID of the deleted book
+     */
+    public BookDeletedEvent(Object source, long bookId) {
+        super(source);
+        this.bookId = bookId;
+    }
+}
@@ -0,0 +1,34 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.event;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.service.BookSearchIndex;
+import com.horizon.ebooklibrary.ebooklibrarybackend.service.CatalogSnapshot;
+import com.horizon.ebooklibrary.ebooklibrarybackend.service.ReadStateIndex;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Listens for BookDeletedEvent and removes the book from the in-memory read-state and search indexes
+ * and from the catalog snapshot.
+ * Runs only once the deletion has committed, so a rolled back deletion never hides the book.
+ * Its files are removed separately, in the background (see FileReclaimer).
+ */
+@SuppressWarnings("unused")
+@Component
+@RequiredArgsConstructor
+public class BookDeletedEventListener {
+
+    private final ReadStateIndex readStateIndex;
+    private final BookSearchIndex bookSearchIndex;
+    private final CatalogSnapshot catalogSnapshot;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleBookDeletedEvent(BookDeletedEvent event) {
+        readStateIndex.onBookDeleted(event.getBookId());
+        bookSearchIndex.remove(event.getBookId());
+        catalogSnapshot.rebuild();
+    }
+}
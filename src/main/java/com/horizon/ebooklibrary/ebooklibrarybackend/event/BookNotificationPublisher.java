@@ -5,11 +5,14 @@ import com.horizon.ebooklibrary.ebooklibrarybackend.entity.Book;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 import lombok.RequiredArgsConstructor;
 
 /**
  * Publishes internal Spring events related to book actions.
- * Currently used to publish NewBookEvent when a new book is uploaded.
+ * Used to publish NewBookEvent when a new book is uploaded, BooksImportedEvent after a bulk import
+ * and BookDeletedEvent when a book is deleted.
  */
 @SuppressWarnings("unused")
 @Component
@@ -25,4 +28,20 @@ public class BookNotificationPublisher {
     public void publishNewBook(Book book) {
         eventPublisher.publishEvent(new NewBookEvent(this, book));
     }
+
+    /**
+     * Publishes a BooksImportedEvent for the books of one bulk import
+     * @param books the newly added books
+     */
+    public void publishBooksImported(List<Book> books) {
+        eventPublisher.publishEvent(new BooksImportedEvent(this, books));
+    }
+
+    /**
+     * Publishes a BookDeletedEvent
+     * @param bookId the ID of the deleted book
+     */
+    public void publishBookDeleted(long bookId) {
+        eventPublisher.publishEvent(new BookDeletedEvent(this, bookId));
+    }
 }
@@ -0,0 +1,29 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.event;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.Book;
+
+import org.springframework.context.ApplicationEvent;
+
+import java.util.List;
+
+import lombok.Getter;
+
+/**
+ * Spring application event signaling that a bulk import added books.
+ * One event for the whole import, so the in-memory indexes and the catalog snapshot are updated once.
+ */
+@Getter
+public class BooksImportedEvent extends ApplicationEvent {
+
+    private final List<Book> books;
+
+    /**
+     * Construct a new BooksImportedEvent
+     * @param source the object on which the event initially occurred ('this' from publisher)
+     * @param books the books that were just added
+     */
+    public BooksImportedEvent(Object source, List<Book> books) {
+        super(source);
+        this.books = books;
+    }
+}
@@ -1,39 +1,45 @@
 package com.horizon.ebooklibrary.ebooklibrarybackend.event;
 
-import com.google.firebase.messaging.FirebaseMessagingException;
 import com.horizon.ebooklibrary.ebooklibrarybackend.entity.Book;
-import com.horizon.ebooklibrary.ebooklibrarybackend.service.FCMService;
+import com.horizon.ebooklibrary.ebooklibrarybackend.service.BookSearchIndex;
+import com.horizon.ebooklibrary.ebooklibrarybackend.service.CatalogSnapshot;
+import com.horizon.ebooklibrary.ebooklibrarybackend.service.ReadStateIndex;
 
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
 
 /**
- * Listens for NewBookEvent and sends a broadcast push notification to all users.
- * Subscribed to the "new_books" topic via Firebase Cloud Messaging.
+ * Listens for NewBookEvent (and BooksImportedEvent) and makes the new books visible to the in-memory read-state
+ * and search indexes and to the catalog snapshot.
+ * Runs only once the transaction that added the book has committed, so a rolled back upload never shows up.
+ * The push notification itself goes through the transactional outbox (see NotificationOutbox and OutboxRelay).
  */
 @SuppressWarnings("unused")
-@Slf4j
 @Component
 @RequiredArgsConstructor
 public class NewBookEventListener {
 
-    private final FCMService fcmService;
+    private final ReadStateIndex readStateIndex;
+    private final BookSearchIndex bookSearchIndex;
+    private final CatalogSnapshot catalogSnapshot;
 
-    @EventListener
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
     public void handleNewBookEvent(NewBookEvent event) {
         Book book = event.getBook();
-        try {
-            fcmService.sendToTopic(
-                    FCMService.TOPIC_NEW_BOOKS,
-                    "New Book: " + book.getTitle(),
-                    "By " + book.getAuthor() + " - now in the library!"
-            );
-            log.info("Notification sent for book '{}'", book.getTitle());
-        } catch (FirebaseMessagingException e) {
-            log.error("Failed to send FCM notification for new book '{}': {}", book.getTitle(), e.getMessage(), e);
+        readStateIndex.onBookAdded(book);
+        bookSearchIndex.add(book);
+        catalogSnapshot.rebuild();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleBooksImportedEvent(BooksImportedEvent event) {
+        for(Book book : event.getBooks()) {
+            readStateIndex.onBookAdded(book);
+            bookSearchIndex.add(book);
         }
+        catalogSnapshot.rebuild(); // Once for the whole import
     }
 }
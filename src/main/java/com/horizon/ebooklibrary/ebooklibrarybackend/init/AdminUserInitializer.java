@@ -6,6 +6,7 @@ import com.horizon.ebooklibrary.ebooklibrarybackend.repository.UserRepository;
 import com.horizon.ebooklibrary.ebooklibrarybackend.service.UserService;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Component;
 
 import java.util.Optional;
@@ -14,6 +15,7 @@ import java.util.Optional;
  * AdminUserInitializer ensures a default admin user is created on first run if one doesn't already exist in the database.
  */
 @Component
+@DependsOn("idSequenceInitializer") // Sequences must be past the existing ids before the admin is inserted
 @RequiredArgsConstructor
 public class AdminUserInitializer {
 
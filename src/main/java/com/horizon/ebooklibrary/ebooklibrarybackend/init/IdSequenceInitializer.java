@@ -0,0 +1,71 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.init;
+
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * IdSequenceInitializer moves the id sequences past the ids already in use on startup.
+ * <p>
+ * Entities used to get their ids from IDENTITY columns and now take them from pooled sequences
+ * (50 ids per nextval, see the entities). Hibernate creates the sequences starting at 1, so on a database
+ * with existing rows the first ids handed out would collide. Each sequence is advanced so that
+ * the next block starts after max(id). Once a sequence is ahead this is a no-op.
+ * Runs before any other initializer inserts rows (AdminUserInitializer depends on it).
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory") // Hibernate creates the sequences (ddl-auto=update)
+@RequiredArgsConstructor
+public class IdSequenceInitializer {
+
+    // Must match allocationSize in the @SequenceGenerator of the entities
+    private static final int ALLOCATION_SIZE = 50;
+
+    // Table -> sequence of every entity with a pooled id
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "books", "books_seq",
+            "users", "users_seq",
+            "user_books", "user_books_seq",
+            "outbox_events", "outbox_events_seq");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void alignSequences() {
+        SEQUENCES.forEach((table, sequence) -> {
+            try {
+                align(table, sequence);
+            } catch(DataAccessException e) {
+                log.warn("Could not align sequence '{}' with table '{}': {}", sequence, table, e.getMessage());
+            }
+        });
+    }
+
+    private void align(String table, String sequence) {
+        Long maxId = jdbcTemplate.queryForObject("select max(id) from " + table, Long.class);
+        if(maxId == null) {
+            return; // Empty table, any id is free
+        }
+
+        // Lowest id of the next block Hibernate will reserve: nextval returns the block's upper end
+        Map<String, Object> state = jdbcTemplate.queryForMap("select last_value, is_called from " + sequence);
+        long lastValue = ((Number) state.get("last_value")).longValue();
+        boolean called = (Boolean) state.get("is_called");
+        long nextBlockStart = (called ? lastValue + ALLOCATION_SIZE : lastValue) - ALLOCATION_SIZE + 1;
+        if(nextBlockStart > maxId) {
+            return;
+        }
+
+        // The next nextval returns maxId + ALLOCATION_SIZE, so the block is maxId + 1 .. maxId + ALLOCATION_SIZE
+        jdbcTemplate.queryForObject("select setval(?, ?, true)", Long.class, sequence, maxId);
+        log.info("Advanced sequence '{}' past the existing ids of '{}' (max id {})", sequence, table, maxId);
+    }
+}
@@ -0,0 +1,61 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.init;
+
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * SortCollationInitializer switches books.title and books.author to the "C" collation on startup (PostgreSQL).
+ * <p>
+ * The keyset queries of BookRepository and UserBookRepository sort these columns in the database, while
+ * the read-state index pages /books/read and /books/unread in memory with BookSort, i.e. String.compareTo.
+ * Under a linguistic collation such as en_US the orders differ ("apple" before "Banana" in the database,
+ * after it in Java), and a cursor issued by one path skips or repeats rows on the other.
+ * "C" compares UTF-8 bytes, which is code point order like String.compareTo (outside supplementary characters).
+ * The change rebuilds idx_books_title_id and idx_books_author_id once, later startups only read the catalog.
+ * H2 (tests) already compares strings like Java.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory") // Hibernate creates the table (ddl-auto=update)
+@RequiredArgsConstructor
+public class SortCollationInitializer {
+
+    private static final List<String> COLUMNS = List.of("title", "author");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void useBinaryCollation() {
+        try {
+            String database = jdbcTemplate.execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            if(!"PostgreSQL".equals(database)) {
+                return;
+            }
+            for(String column : COLUMNS) {
+                Map<String, Object> info = jdbcTemplate.queryForMap("select collation_name, character_maximum_length " +
+                        "from information_schema.columns where table_schema = current_schema() " +
+                        "and table_name = 'books' and column_name = ?", column);
+                if("C".equals(info.get("collation_name"))) {
+                    continue;
+                }
+                Object length = info.get("character_maximum_length");
+                String type = length == null ? "text" : "varchar(" + length + ")";
+                jdbcTemplate.execute("alter table books alter column " + column + " type " + type + " collate \"C\"");
+                log.info("Switched books.{} to the \"C\" collation, matching the in-memory sort order", column);
+            }
+        } catch(DataAccessException e) {
+            log.warn("Could not set the collation of the book sort columns: {}", e.getMessage());
+        }
+    }
+}
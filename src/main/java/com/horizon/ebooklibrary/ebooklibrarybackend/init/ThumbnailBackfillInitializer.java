@@ -0,0 +1,32 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.init;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.service.ThumbnailService;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * ThumbnailBackfillInitializer generates the missing cover variants of existing uploads once the application is up.
+ * Covers uploaded before the thumbnail pipeline (or skipped while its queue was full) are picked up here.
+ * The backfill runs in the background, startup doesn't wait for it.
+ */
+@Component
+@RequiredArgsConstructor
+public class ThumbnailBackfillInitializer {
+
+    private final ThumbnailService thumbnailService;
+
+    @Value("${thumbnails.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillThumbnails() {
+        if(backfillOnStartup) {
+            thumbnailService.startBackfill();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.init;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.repository.UserBookRepository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * UserBookSparseMigration removes the legacy read=false rows from user_books on startup.
+ * Older versions wrote one unread row per user for every book, the sparse model only keeps explicit read marks.
+ * Rows are deleted in batches so that the migration never holds one huge transaction.
+ * Once the table is clean this is a single cheap query on every startup.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserBookSparseMigration {
+
+    private final UserBookRepository userBookRepository;
+
+    @Value("${user-books.migration.batch-size:10000}")
+    private int batchSize;
+
+    @PostConstruct
+    public void removeUnreadRows() {
+        long total = 0;
+        int deleted;
+        do {
+            deleted = userBookRepository.deleteUnreadMarksBatch(batchSize);
+            total += deleted;
+        } while(deleted > 0);
+
+        if(total > 0) {
+            log.info("Removed {} legacy unread rows from user_books", total);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.metrics;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread.
+ * <p>
+ * Registered as Hibernate's statement inspector, it sees every statement (queries, inserts, lazy loads)
+ * without logging them. Counting only happens between start() and stop(), which QueryCountFilter calls
+ * around each HTTP request, so background work is never counted.
+ */
+@SuppressWarnings("unused")
+@Component
+public class QueryCountInspector implements StatementInspector, HibernatePropertiesCustomizer {
+
+    // Statements of the request running on this thread, null when no request is being counted
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = COUNT.get();
+        if(count != null) {
+            count[0]++;
+        }
+        return sql; // Unchanged
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    /**
+     * Starts counting the statements of the current thread.
+     */
+    public static void start() {
+        COUNT.set(new int[1]);
+    }
+
+    /**
+     * Stops counting on the current thread.
+     * @return the number of statements since start()
+     */
+    public static int stop() {
+        int[] count = COUNT.get();
+        COUNT.remove();
+        return count == null ? 0 : count[0];
+    }
+}
@@ -1,12 +1,124 @@
 package com.horizon.ebooklibrary.ebooklibrarybackend.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.horizon.ebooklibrary.ebooklibrarybackend.dto.BookSummary;
 import com.horizon.ebooklibrary.ebooklibrarybackend.entity.Book;
 
+import java.util.List;
+import java.util.stream.Stream;
+
+import jakarta.persistence.QueryHint;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
 @SuppressWarnings("unused")
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
 
+    /*
+     * Catalog queries are cacheable: the query cache keeps the matching IDs and the books themselves come from
+     * the second-level cache. Hibernate invalidates the cached results whenever the books table is written
+     * through the EntityManager or a bulk statement (add, deleteBookById), so they are never stale.
+     */
+
+    @Override
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<Book> findAll();
+
+    /**
+     * Reference count of an uploaded file: the number of books using the URL as cover or PDF.
+     * @param coverUrl the file URL, matched against coverUrl
+     * @param pdfUrl the file URL, matched against pdfUrl
+     * @return number of referencing books
+     */
+    long countByCoverUrlOrPdfUrl(String coverUrl, String pdfUrl);
+
+    /**
+     * Every file URL referenced by a book (cover and PDF), streamed from a cursor instead of loaded as a list.
+     * Must be consumed and closed inside a transaction.
+     * @return the referenced URLs, with duplicates
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select b.coverUrl from Book b union all select b.pdfUrl from Book b")
+    Stream<String> streamFileUrls();
+
+    /**
+     * Deletes a book with a single statement. Its user_books rows are removed by the database (ON DELETE CASCADE),
+     * none of them is loaded. Hibernate evicts the Book cache region and the cached queries on books.
+     * @param id the ID of the book
+     * @return number of rows deleted, 0 if the book didn't exist
+     */
+    @Modifying
+    @Query("delete from Book b where b.ID = :id")
+    int deleteBookById(@Param("id") long id);
+
+    /**
+     * Unread books are derived as "catalog minus read set", since only read marks are stored in user_books.
+     * Returned as projections from a single anti-join, no entity is loaded.
+     * @param userId the ID of the user whose unread books are requested
+     * @return all books the user has not marked as read
+     */
+    @Query("select new com.horizon.ebooklibrary.ebooklibrarybackend.dto.BookSummary(" +
+            "b.ID, b.title, b.author, b.description, b.coverUrl, b.pdfUrl) from Book b where not exists " +
+            "(select ub.id from UserBook ub where ub.book = b and ub.user.id = :userId and ub.read = true)")
+    List<BookSummary> findUnreadBookSummaries(@Param("userId") long userId);
+
+    /**
+     * @param userId the ID of the user
+     * @return the number of books the user has not marked as read
+     */
+    @Query("select count(b) from Book b where not exists " +
+            "(select ub.id from UserBook ub where ub.book = b and ub.user.id = :userId and ub.read = true)")
+    long countUnreadByUserId(@Param("userId") long userId);
+
+    // Keyset (seek) queries: each page continues strictly after the (sort key, ID) of the previous page's last row.
+    // The row-value comparison is answered by the (title, id) / (author, id) indexes on books,
+    // so any page costs the same as the first one.
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("select b from Book b where b.ID > :id order by b.ID asc")
+    List<Book> findPageOrderById(@Param("id") long afterId, Limit limit);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("select b from Book b where (b.title, b.ID) > (:title, :id) " +
+            "order by b.title asc, b.ID asc")
+    List<Book> findPageOrderByTitle(@Param("title") String afterTitle, @Param("id") long afterId, Limit limit);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("select b from Book b where (b.author, b.ID) > (:author, :id) " +
+            "order by b.author asc, b.ID asc")
+    List<Book> findPageOrderByAuthor(@Param("author") String afterAuthor, @Param("id") long afterId, Limit limit);
+
+    // Keyset pages of a user's unread books (catalog minus read set), used while the ReadStateIndex is loading.
+
+    @Query("select new com.horizon.ebooklibrary.ebooklibrarybackend.dto.BookSummary(" +
+            "b.ID, b.title, b.author, b.description, b.coverUrl, b.pdfUrl) from Book b " +
+            "where b.ID > :id and not exists " +
+            "(select ub.id from UserBook ub where ub.book = b and ub.user.id = :userId and ub.read = true) " +
+            "order by b.ID asc")
+    List<BookSummary> findUnreadPageOrderById(@Param("userId") long userId, @Param("id") long afterId, Limit limit);
+
+    @Query("select new com.horizon.ebooklibrary.ebooklibrarybackend.dto.BookSummary(" +
+            "b.ID, b.title, b.author, b.description, b.coverUrl, b.pdfUrl) from Book b " +
+            "where (b.title, b.ID) > (:title, :id) and not exists " +
+            "(select ub.id from UserBook ub where ub.book = b and ub.user.id = :userId and ub.read = true) " +
+            "order by b.title asc, b.ID asc")
+    List<BookSummary> findUnreadPageOrderByTitle(@Param("userId") long userId, @Param("title") String afterTitle,
+                                                 @Param("id") long afterId, Limit limit);
+
+    @Query("select new com.horizon.ebooklibrary.ebooklibrarybackend.dto.BookSummary(" +
+            "b.ID, b.title, b.author, b.description, b.coverUrl, b.pdfUrl) from Book b " +
+            "where (b.author, b.ID) > (:author, :id) and not exists " +
+            "(select ub.id from UserBook ub where ub.book = b and ub.user.id = :userId and ub.read = true) " +
+            "order by b.author asc, b.ID asc")
+    List<BookSummary> findUnreadPageOrderByAuthor(@Param("userId") long userId, @Param("author") String afterAuthor,
+                                                  @Param("id") long afterId, Limit limit);
 }
@@ -0,0 +1,61 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.repository;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.BookTombstone;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Repository for the book_tombstones table (see FileReclaimer).
+ */
+@SuppressWarnings("unused")
+public interface BookTombstoneRepository extends JpaRepository<BookTombstone, Long>, LeasedTaskRepository<BookTombstone> {
+
+    @Override
+    @Query(value = "select * from book_tombstones where reclaimed_at is null and failed_at is null " +
+            "and available_at <= :now order by id limit :batchSize for update skip locked", nativeQuery = true)
+    List<BookTombstone> lockNextBatch(@Param("now") Instant now, @Param("batchSize") int batchSize);
+
+    /**
+     * Marks a tombstone as reclaimed, its files were removed.
+     */
+    @Modifying
+    @Transactional
+    @Query("update BookTombstone t set t.reclaimedAt = :reclaimedAt where t.id = :id")
+    int markReclaimed(@Param("id") Long id, @Param("reclaimedAt") Instant reclaimedAt);
+
+    @Override
+    @Modifying
+    @Transactional
+    @Query("update BookTombstone t set t.failedAt = :failedAt, t.lastError = :error where t.id = :id")
+    int markFailed(@Param("id") Long id, @Param("failedAt") Instant failedAt, @Param("error") String error);
+
+    @Override
+    @Modifying
+    @Transactional
+    @Query("update BookTombstone t set t.availableAt = :availableAt, t.attempts = :attempts, t.lastError = :error " +
+            "where t.id = :id")
+    int reschedule(@Param("id") Long id, @Param("availableAt") Instant availableAt, @Param("attempts") int attempts,
+                   @Param("error") String error);
+
+    @Override
+    @Query("select count(t) from BookTombstone t where t.reclaimedAt is null and t.failedAt is null")
+    long countPending();
+
+    @Override
+    @Query("select count(t) from BookTombstone t where t.failedAt is not null")
+    long countFailed();
+
+    @Override
+    @Modifying
+    @Transactional
+    @Query(value = "delete from book_tombstones where id in (select id from book_tombstones " +
+            "where reclaimed_at < :before or failed_at < :before limit :batchSize)", nativeQuery = true)
+    int deleteFinishedBefore(@Param("before") Instant before, @Param("batchSize") int batchSize);
+}
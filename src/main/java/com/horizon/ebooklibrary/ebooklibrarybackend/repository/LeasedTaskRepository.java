@@ -0,0 +1,50 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.repository;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.LeasedTask;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Queries LeasedTaskQueue needs on a work table, declared with their SQL by each repository.
+ * @param <T> the row type
+ */
+public interface LeasedTaskRepository<T extends LeasedTask> {
+
+    /**
+     * Locks the next due, pending rows. Rows already locked by another instance are skipped instead of waited for,
+     * so several instances can poll the table concurrently without claiming the same row.
+     * Must be called inside a transaction, the locks are held until it ends.
+     * @param now the current time
+     * @param batchSize maximum number of rows to lock
+     * @return the locked rows, oldest first
+     */
+    List<T> lockNextBatch(Instant now, int batchSize);
+
+    /**
+     * Releases a row after a failed or deferred attempt, it becomes claimable again at availableAt.
+     * @param attempts the attempts counted so far (a deferral gives back the one its claim counted)
+     */
+    int reschedule(Long id, Instant availableAt, int attempts, String error);
+
+    /**
+     * Gives up on a row: it is never claimed again and keeps the last error for inspection.
+     */
+    int markFailed(Long id, Instant failedAt, String error);
+
+    /**
+     * @return number of rows neither done nor failed
+     */
+    long countPending();
+
+    /**
+     * @return number of rows given up on, until they are cleaned up
+     */
+    long countFailed();
+
+    /**
+     * Deletes a batch of done or failed rows older than the retention period.
+     * @return number of rows deleted
+     */
+    int deleteFinishedBefore(Instant before, int batchSize);
+}
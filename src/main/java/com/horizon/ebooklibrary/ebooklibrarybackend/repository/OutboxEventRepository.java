@@ -0,0 +1,67 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.repository;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.OutboxEvent;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Repository for the outbox_events table (see OutboxRelay).
+ */
+@SuppressWarnings("unused")
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long>, LeasedTaskRepository<OutboxEvent> {
+
+    @Override
+    @Query(value = "select * from outbox_events where processed_at is null and failed_at is null " +
+            "and available_at <= :now order by id limit :batchSize for update skip locked", nativeQuery = true)
+    List<OutboxEvent> lockNextBatch(@Param("now") Instant now, @Param("batchSize") int batchSize);
+
+    /**
+     * Marks an event as delivered.
+     */
+    @Modifying
+    @Transactional
+    @Query("update OutboxEvent e set e.processedAt = :processedAt where e.id = :id")
+    int markProcessed(@Param("id") Long id, @Param("processedAt") Instant processedAt);
+
+    @Override
+    @Modifying
+    @Transactional
+    @Query("update OutboxEvent e set e.failedAt = :failedAt, e.lastError = :error where e.id = :id")
+    int markFailed(@Param("id") Long id, @Param("failedAt") Instant failedAt, @Param("error") String error);
+
+    @Override
+    @Modifying
+    @Transactional
+    @Query("update OutboxEvent e set e.availableAt = :availableAt, e.attempts = :attempts, e.lastError = :error " +
+            "where e.id = :id")
+    int reschedule(@Param("id") Long id, @Param("availableAt") Instant availableAt, @Param("attempts") int attempts,
+                   @Param("error") String error);
+
+    @Override
+    @Query("select count(e) from OutboxEvent e where e.processedAt is null and e.failedAt is null")
+    long countPending();
+
+    @Override
+    @Query("select count(e) from OutboxEvent e where e.failedAt is not null")
+    long countFailed();
+
+    /**
+     * @return creation time of the oldest event not delivered yet, null if there is none
+     */
+    @Query("select min(e.createdAt) from OutboxEvent e where e.processedAt is null and e.failedAt is null")
+    Instant findOldestPendingCreatedAt();
+
+    @Override
+    @Modifying
+    @Transactional
+    @Query(value = "delete from outbox_events where id in (select id from outbox_events " +
+            "where processed_at < :before or failed_at < :before limit :batchSize)", nativeQuery = true)
+    int deleteFinishedBefore(@Param("before") Instant before, @Param("batchSize") int batchSize);
+}
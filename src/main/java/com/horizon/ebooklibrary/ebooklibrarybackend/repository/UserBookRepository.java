@@ -1,18 +1,90 @@
 package com.horizon.ebooklibrary.ebooklibrarybackend.repository;
 
+import com.horizon.ebooklibrary.ebooklibrarybackend.dto.BookSummary;
 import com.horizon.ebooklibrary.ebooklibrarybackend.entity.Book;
 import com.horizon.ebooklibrary.ebooklibrarybackend.entity.User;
 import com.horizon.ebooklibrary.ebooklibrarybackend.entity.UserBook;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+/**
+ * Repository for the sparse user_books table.
+ * A row only exists when a user has explicitly marked a book as read, "unread" is everything else in the catalog.
+ */
 @SuppressWarnings("unused")
 public interface UserBookRepository extends JpaRepository<UserBook, Long> {
     Optional<UserBook> findByUserAndBook(User user, Book book);
     List<UserBook> findAllByUser(User user);
     List<UserBook> findAllByUserAndReadTrue(User user);
-    List<UserBook> findAllByUserAndReadFalse(User user);
+
+    /**
+     * Books a user has marked as read, as projections in a single join of user_books and books.
+     * The user is matched on the foreign key column, users is never joined and no entity is loaded.
+     * @param userId the user's ID
+     * @return the read books
+     */
+    @Query("select new com.horizon.ebooklibrary.ebooklibrarybackend.dto.BookSummary(" +
+            "b.ID, b.title, b.author, b.description, b.coverUrl, b.pdfUrl) " +
+            "from UserBook ub join ub.book b where ub.user.id = :userId and ub.read = true")
+    List<BookSummary> findReadBookSummaries(@Param("userId") long userId);
+
+    // Keyset pages of a user's read books, used while the ReadStateIndex is loading.
+    // Same seek as the catalog pages (see BookRepository), restricted to the user's read marks.
+
+    @Query("select new com.horizon.ebooklibrary.ebooklibrarybackend.dto.BookSummary(" +
+            "b.ID, b.title, b.author, b.description, b.coverUrl, b.pdfUrl) " +
+            "from UserBook ub join ub.book b where ub.user.id = :userId and ub.read = true and b.ID > :id " +
+            "order by b.ID asc")
+    List<BookSummary> findReadPageOrderById(@Param("userId") long userId, @Param("id") long afterId, Limit limit);
+
+    @Query("select new com.horizon.ebooklibrary.ebooklibrarybackend.dto.BookSummary(" +
+            "b.ID, b.title, b.author, b.description, b.coverUrl, b.pdfUrl) " +
+            "from UserBook ub join ub.book b where ub.user.id = :userId and ub.read = true " +
+            "and (b.title, b.ID) > (:title, :id) order by b.title asc, b.ID asc")
+    List<BookSummary> findReadPageOrderByTitle(@Param("userId") long userId, @Param("title") String afterTitle,
+                                               @Param("id") long afterId, Limit limit);
+
+    @Query("select new com.horizon.ebooklibrary.ebooklibrarybackend.dto.BookSummary(" +
+            "b.ID, b.title, b.author, b.description, b.coverUrl, b.pdfUrl) " +
+            "from UserBook ub join ub.book b where ub.user.id = :userId and ub.read = true " +
+            "and (b.author, b.ID) > (:author, :id) order by b.author asc, b.ID asc")
+    List<BookSummary> findReadPageOrderByAuthor(@Param("userId") long userId, @Param("author") String afterAuthor,
+                                                @Param("id") long afterId, Limit limit);
+
+    /**
+     * Streams every read mark as a (userId, bookId) pair without hydrating User or Book entities.
+     * Used to rebuild the in-memory ReadStateIndex, must be consumed inside a transaction.
+     */
+    @Query("select ub.user.id, ub.book.ID from UserBook ub where ub.read = true")
+    Stream<Object[]> streamAllReadMarks();
+
+    /**
+     * Removes the read mark of a user for a single book, if one exists.
+     * @return number of rows deleted (0 or 1)
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from UserBook ub where ub.user = :user and ub.book = :book")
+    int deleteByUserAndBook(@Param("user") User user, @Param("book") Book book);
+
+    /**
+     * Migration helper: deletes a batch of legacy read=false rows left over from the old users x books fan-out.
+     * Runs in its own transaction so that large tables are cleaned up in small steps.
+     * @param batchSize maximum number of rows to delete in this call
+     * @return number of rows deleted
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "delete from user_books where id in (select id from user_books where read = false limit :batchSize)",
+            nativeQuery = true)
+    int deleteUnreadMarksBatch(@Param("batchSize") int batchSize);
 }
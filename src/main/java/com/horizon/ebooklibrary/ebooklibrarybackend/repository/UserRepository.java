@@ -2,9 +2,23 @@ package com.horizon.ebooklibrary.ebooklibrarybackend.repository;
 
 import com.horizon.ebooklibrary.ebooklibrarybackend.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.Optional;
 
 @SuppressWarnings("unused")
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email); // Find user by email
+
+    /**
+     * Replaces a password hash, only if it is still the expected one (used to upgrade the BCrypt cost).
+     * @return number of rows updated (0 or 1)
+     */
+    @Modifying
+    @Transactional
+    @Query("update User u set u.password = :newHash where u.id = :id and u.password = :oldHash")
+    int updatePasswordIfUnchanged(@Param("id") Long id, @Param("oldHash") String oldHash,
+                                  @Param("newHash") String newHash);
 }
@@ -0,0 +1,19 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.security;
+
+import java.security.Principal;
+
+/**
+ * The identity carried by a verified JWT, stored as principal in the SecurityContext.
+ * Built once per token by JwtUtils, so nothing downstream needs to parse the token again.
+ * @param email the user's email (token subject)
+ * @param userId the user's ID ("uid" claim), null for tokens issued before the claim existed
+ * @param role the granted authority, e.g. "ROLE_USER" (null for refresh tokens)
+ * @param expiresAtMillis the token expiration time (epoch milliseconds)
+ */
+public record AuthenticatedPrincipal(String email, Long userId, String role, long expiresAtMillis) implements Principal {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
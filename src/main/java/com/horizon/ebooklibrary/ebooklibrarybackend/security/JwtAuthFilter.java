@@ -3,7 +3,6 @@ package com.horizon.ebooklibrary.ebooklibrarybackend.security;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -12,9 +11,13 @@ import java.io.IOException;
 import java.util.List;
 
 import org.springframework.lang.NonNull;
-import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
-import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -24,18 +27,25 @@ import lombok.RequiredArgsConstructor;
 /**
  * Filter that intercepts every incoming HTTP request to:
  * - Extract and validate the JWT token from the Authorization header.
- * - Parse user identity and role from the token.
+ * - Parse user identity and role from the token (once, verified tokens are cached by JwtUtils).
  * - Authenticate the request in the Spring Security context.
  * <p>
  * If the token is expired or invalid, a 401 Unauthorized response is returned,
  * this ensures that only authenticated users can access protected endpoints.
+ * <p>
+ * Verification time is recorded as auth.jwt.verification, tagged with result=valid or the failure reason
+ * (expired, bad_signature, malformed, unsupported, no_role, invalid).
  */
 @SuppressWarnings("unused")
 @Component
 @RequiredArgsConstructor
 public class JwtAuthFilter extends OncePerRequestFilter {
 
+    // Message of the exception thrown for tokens without a role (refresh tokens)
+    private static final String NO_AUTHORITIES = "Token has no authorities";
+
     private final JwtUtils jwtUtils;
+    private final MeterRegistry meterRegistry;
 
     /**
      * Filter logic that runs for each request.
@@ -59,38 +69,30 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         String token = authHeader.substring(7); // Remove "Bearer " prefix
 
         // Error handling for expired tokens, to return 401 Unauthorized instead of server error.
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
-            String email = jwtUtils.getEmailFromToken(token);
-
-            // Extract claims from the token
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(jwtUtils.getSecretKey()) // Use the secret key from JwtUtils
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            // Verify the token once (or reuse the verification of an earlier request with the same token)
+            AuthenticatedPrincipal principal = jwtUtils.authenticate(token);
 
-            // Extract user's role from claims
-            String role = claims.get("authorities", String.class); // Extract role
+            // Refresh tokens carry no role and can't be used to access the API
+            if(principal.role() == null) {
+                throw new JwtException(NO_AUTHORITIES);
+            }
 
             // Convert role into Spring security authorities
-            List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority(role));
+            List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority(principal.role()));
 
             // Authenticate if not already authenticated
-            if(email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = org.springframework.security.core.userdetails.User.builder()
-                        .username(email)
-                        .password("") // Password is not used during token authentication
-                        .authorities(authorities)
-                        .build();
-
+            if(principal.email() != null && SecurityContextHolder.getContext().getAuthentication() == null) {
                 UsernamePasswordAuthenticationToken authToken =
-                        new UsernamePasswordAuthenticationToken(userDetails, null, authorities);
+                        new UsernamePasswordAuthenticationToken(principal, null, authorities);
 
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
                 // Set authentication in context
                 SecurityContextHolder.getContext().setAuthentication(authToken);
             }
+            recordVerification(sample, "valid");
 
         /*
          * Catching ExpiredJwtException and returning 401 unauthorized.
@@ -98,11 +100,13 @@ public class JwtAuthFilter extends OncePerRequestFilter {
          * Catching other JWT errors, if the token is invalid, return "Invalid token."
          */
         } catch (ExpiredJwtException e) {
+            recordVerification(sample, "expired");
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             response.getWriter().write("{\"error\": \"Token has expired. Please log in again.\"}");
             response.getWriter().flush();
             return;
         } catch (Exception e) {
+            recordVerification(sample, failureReason(e));
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             response.getWriter().write("{\"error\": \"Invalid token.\"}");
             response.getWriter().flush();
@@ -114,4 +118,28 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
 
     }
+
+    /**
+     * Maps a verification failure to a fixed set of tag values.
+     */
+    private static String failureReason(Exception e) {
+        if(e instanceof SignatureException) {
+            return "bad_signature";
+        } else if(e instanceof MalformedJwtException) {
+            return "malformed";
+        } else if(e instanceof UnsupportedJwtException) {
+            return "unsupported";
+        } else if(e instanceof JwtException && NO_AUTHORITIES.equals(e.getMessage())) {
+            return "no_role";
+        }
+        return "invalid";
+    }
+
+    private void recordVerification(Timer.Sample sample, String result) {
+        sample.stop(Timer.builder("auth.jwt.verification")
+                .description("Time to verify the bearer token of a request")
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
 }
@@ -1,15 +1,28 @@
 package com.horizon.ebooklibrary.ebooklibrarybackend.security;
 
 import com.horizon.ebooklibrary.ebooklibrarybackend.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
 
 /*
  * Utility class for handling JWT operations such as token generation and validation.
+ *
+ * The parser is built once (it is immutable and thread-safe) and every token is verified a single time:
+ * the resulting AuthenticatedPrincipal is kept in a bounded cache keyed by the SHA-256 of the token,
+ * until the token expires. Repeat requests with the same token skip the signature check and JSON parsing.
  */
 @SuppressWarnings({"LombokGetterMayBeUsed", "unused"})
 @Component
@@ -19,10 +32,58 @@ public class JwtUtils {
     private static final long EXPIRATION_TIME_15 = 900000; // 15 minutes expiry in ms value
     private static final long EXPIRATION_TIME_2HR = 7200000; // 2 hours expiry in ms value
 
-    // Secret ket used to sign tokens
-    private final String SECRET = JwtSecretLoader.loadJwtSecret();
-    // Convert Base64-encoded secret to HMAC SHA key
-    private final Key secretKey = Keys.hmacShaKeyFor(SECRET.getBytes());
+    // Claim holding the user's ID, so requests don't need a lookup by email
+    public static final String USER_ID_CLAIM = "uid";
+
+    // Maximum number of verified tokens kept in memory
+    private static final int VERIFIED_TOKEN_CACHE_SIZE = 10_000;
+
+    // Secret key used to sign tokens, converted to an HMAC SHA key
+    private final Key secretKey;
+    // Shared parser, built once
+    private final JwtParser parser;
+    // SHA-256 of the token -> principal, each entry expires with its token
+    private final Cache<String, AuthenticatedPrincipal> verifiedTokens;
+
+    /**
+     * Creates the JwtUtils with the secret read from JWT_SECRET_PATH.
+     */
+    public JwtUtils() {
+        this(JwtSecretLoader.loadJwtSecret());
+    }
+
+    /**
+     * Creates the JwtUtils with the given secret (used by benchmarks and tests).
+     * @param secret the HMAC secret
+     */
+    public JwtUtils(String secret) {
+        this.secretKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(secretKey)
+                .build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(VERIFIED_TOKEN_CACHE_SIZE)
+                .expireAfter(new Expiry<String, AuthenticatedPrincipal>() {
+                    @Override
+                    public long expireAfterCreate(String key, AuthenticatedPrincipal principal, long currentTime) {
+                        long remainingMillis = principal.expiresAtMillis() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, AuthenticatedPrincipal principal, long currentTime,
+                                                  long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, AuthenticatedPrincipal principal, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
 
     /**
      * Generates a short-lived access token for the given user.
@@ -32,6 +93,7 @@ public class JwtUtils {
     public String generateToken(User user) {
         return Jwts.builder()
                 .setSubject(user.getEmail()) // Set user email as subject
+                .claim(USER_ID_CLAIM, user.getId()) // Store user ID as "uid"
                 .claim("authorities", "ROLE_" + user.getRole().name()) // Store role as "authorities"
                 .setIssuedAt(new Date()) // When token was issued
                 .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME_15))
@@ -47,42 +109,59 @@ public class JwtUtils {
     public String generateRefreshToken(User user) {
         return Jwts.builder()
                 .setSubject(user.getEmail())
+                .claim(USER_ID_CLAIM, user.getId())
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME_2HR))
                 .signWith(secretKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /**
+     * Verifies a token and returns the identity it carries.
+     * A token seen before (and not expired yet) is answered from the cache without verifying the signature again.
+     * @param token the JWT token
+     * @return the principal encoded in the token
+     * @throws ExpiredJwtException if the token has expired
+     * @throws JwtException if the token is invalid
+     */
+    public AuthenticatedPrincipal authenticate(String token) {
+        String key = hash(token);
+        AuthenticatedPrincipal cached = verifiedTokens.getIfPresent(key);
+        if(cached != null && cached.expiresAtMillis() > System.currentTimeMillis()) {
+            return cached;
+        }
+
+        AuthenticatedPrincipal principal = parse(token);
+        verifiedTokens.put(key, principal);
+        return principal;
+    }
+
+    /**
+     * Verifies and parses a token, without using the cache.
+     * @param token the JWT token
+     * @return the principal encoded in the token
+     * @throws ExpiredJwtException if the token has expired
+     * @throws JwtException if the token is invalid
+     */
+    public AuthenticatedPrincipal parse(String token) {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        Date expiration = claims.getExpiration();
+        return new AuthenticatedPrincipal(
+                claims.getSubject(),
+                claims.get(USER_ID_CLAIM, Long.class),
+                claims.get("authorities", String.class),
+                expiration == null ? Long.MAX_VALUE : expiration.getTime());
+    }
+
     /**
      * Extracts the email from the token.
      * @param token the JWT token.
      * @return The email encoded.
      */
     public String getEmailFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(secretKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return authenticate(token).email();
     }
 
-// --Commented out by Inspection START (5/12/2025 7:15 PM):
-//    /**
-//     * Extracts the user role from the token.
-//     * @param token the JWT token.
-//     * @return The role encoded in the token.
-//     */
-//    public String getRoleFromToken(String token) {
-//        return (String) Jwts.parserBuilder()
-//                .setSigningKey(secretKey)
-//                .build()
-//                .parseClaimsJws(token)
-//                .getBody()
-//                .get("authorities", String.class);
-//    }
-// --Commented out by Inspection STOP (5/12/2025 7:15 PM)
-
     /**
      * Validates the given JWT token.
      * @param token the JWT token to validate.
@@ -90,10 +169,7 @@ public class JwtUtils {
      */
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(secretKey)
-                    .build()
-                    .parseClaimsJws(token);
+            authenticate(token);
             return true;
         } catch (JwtException e) {
             return false; // any parse or validation error counts and invalid
@@ -108,4 +184,16 @@ public class JwtUtils {
     public Key getSecretKey() {
         return secretKey;
     }
+
+    /**
+     * Cache key of a token: its SHA-256, so the cache never holds usable tokens.
+     */
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch(NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e); // Mandatory in every JRE
+        }
+    }
 }
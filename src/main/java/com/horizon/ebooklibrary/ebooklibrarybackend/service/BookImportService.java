@@ -0,0 +1,467 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.horizon.ebooklibrary.ebooklibrarybackend.dto.BookImportItem;
+import com.horizon.ebooklibrary.ebooklibrarybackend.dto.BookImportResult;
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.Book;
+import com.horizon.ebooklibrary.ebooklibrarybackend.event.BookNotificationPublisher;
+import com.horizon.ebooklibrary.ebooklibrarybackend.repository.BookRepository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulk import of books from a ZIP archive (POST /admin/books/import).
+ * <p>
+ * The archive starts with a "manifest.json" (a JSON array of {title, author, description, cover, pdf},
+ * cover and pdf being paths inside the archive), followed by the cover and PDF files in any order.
+ * It is read as a stream, entry by entry: the manifest is validated first, then only the files it references
+ * are hashed and stored (content-addressed, deduplicated) while they are read, by a few workers in parallel,
+ * so the archive is never buffered in memory or on disk. Entry count and total stored bytes are capped.
+ * The books are then inserted in a single transaction, flushed in JDBC batches, together with one digest
+ * notification for the whole import. Items with missing or invalid files are reported and skipped.
+ * Files no imported book uses are not removed right away: they were just written, so they are within
+ * the upload grace period, and StorageReconciler quarantines them once it has passed.
+ */
+@SuppressWarnings("unused")
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BookImportService {
+
+    public static final String MANIFEST = "manifest.json";
+
+    private static final int MAX_MANIFEST_SIZE = 16 * 1024 * 1024;
+    private static final int PIPE_CHUNK_SIZE = 64 * 1024;
+    private static final int PIPE_CHUNKS = 16;
+
+    private final UploadService uploadService;
+    private final ThumbnailService thumbnailService;
+    private final BookRepository bookRepository;
+    private final NotificationOutbox notificationOutbox;
+    private final BookNotificationPublisher bookNotificationPublisher;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+
+    @Value("${books.import.max-books:10000}")
+    private int maxBooks;
+
+    // Largest accepted cover or PDF inside an archive
+    @Value("${books.import.max-file-size:104857600}")
+    private long maxFileSize;
+
+    // Entries of an archive (manifest and directories aside, a cover and a PDF per book)
+    @Value("${books.import.max-entries:20000}")
+    private int maxEntries;
+
+    // Bytes of all the files stored from one archive
+    @Value("${books.import.max-total-bytes:10737418240}")
+    private long maxTotalBytes;
+
+    // Files stored at the same time
+    @Value("${books.import.parallelism:4}")
+    private int parallelism;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // Books flushed (and detached) per JDBC batch, matches hibernate.jdbc.batch_size
+    @Value("${books.import.batch-size:50}")
+    private int batchSize;
+
+    /**
+     * Imports the books of an archive.
+     * @param archive the ZIP archive, read to its end
+     * @return the status of every manifest item, or the reason the archive was rejected
+     * @throws IOException if the archive can't be read (ZipException if it isn't a valid ZIP) or a file can't be stored
+     */
+    public BookImportResult importArchive(InputStream archive) throws IOException {
+        ZipInputStream zip = new ZipInputStream(archive);
+        // Nothing is stored before the manifest says which files are needed
+        ZipEntry first = nextFile(zip);
+        if(first == null || !normalize(first.getName()).equals(MANIFEST)) {
+            return BookImportResult.rejected(MANIFEST + " must be the first entry of the archive");
+        }
+        byte[] manifestBytes = zip.readNBytes(MAX_MANIFEST_SIZE + 1);
+        if(manifestBytes.length > MAX_MANIFEST_SIZE) {
+            return BookImportResult.rejected(MANIFEST + " is larger than " + MAX_MANIFEST_SIZE + " bytes");
+        }
+        List<BookImportItem> manifest;
+        try {
+            manifest = objectMapper.readValue(manifestBytes, new TypeReference<>() { });
+        } catch(JsonProcessingException e) {
+            return BookImportResult.rejected("Invalid manifest: " + e.getOriginalMessage());
+        }
+        if(manifest == null || manifest.size() > maxBooks) {
+            return BookImportResult.rejected(manifest == null
+                    ? MANIFEST + " must be a JSON array"
+                    : "Too many books in one import (maximum " + maxBooks + ")");
+        }
+
+        // Only the files of items that can be imported are stored
+        Set<String> referenced = new HashSet<>();
+        for(BookImportItem item : manifest) {
+            if(validate(item, null, null) == null) {
+                referenced.add(normalize(item.getCover()));
+                referenced.add(normalize(item.getPdf()));
+            }
+        }
+        // Archive path -> public URL of the stored file, or why it wasn't stored
+        Map<String, String> storedFiles = new HashMap<>();
+        Map<String, String> rejectedFiles = new HashMap<>();
+        String archiveError = storeFiles(zip, referenced, storedFiles, rejectedFiles);
+        if(archiveError != null) {
+            deleteUnused(storedFiles.values(), Set.of());
+            return BookImportResult.rejected(archiveError);
+        }
+
+        // Validate every item, keeping the manifest order in the report
+        List<BookImportResult.Item> items = new ArrayList<>(manifest.size());
+        List<Book> books = new ArrayList<>();
+        List<Integer> bookIndexes = new ArrayList<>();
+        for(int i = 0; i < manifest.size(); i++) {
+            BookImportItem item = manifest.get(i);
+            String error = validate(item, storedFiles, rejectedFiles);
+            if(error != null) {
+                items.add(new BookImportResult.Item(i, item.getTitle(), BookImportResult.Status.FAILED, null, error));
+                continue;
+            }
+            items.add(null); // Filled once the book is inserted
+            bookIndexes.add(i);
+            books.add(Book.builder()
+                    .title(item.getTitle().trim())
+                    .author(item.getAuthor().trim())
+                    .description(item.getDescription())
+                    .coverUrl(storedFiles.get(normalize(item.getCover())))
+                    .pdfUrl(storedFiles.get(normalize(item.getPdf())))
+                    .build());
+        }
+
+        String insertError = books.isEmpty() ? null : insert(books);
+        Set<String> usedUrls = new HashSet<>();
+        for(int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            int index = bookIndexes.get(i);
+            if(insertError == null) {
+                usedUrls.add(book.getCoverUrl());
+                usedUrls.add(book.getPdfUrl());
+                items.set(index, new BookImportResult.Item(index, book.getTitle(),
+                        BookImportResult.Status.IMPORTED, book.getID(), null));
+            } else {
+                items.set(index, new BookImportResult.Item(index, book.getTitle(),
+                        BookImportResult.Status.FAILED, null, insertError));
+            }
+        }
+        deleteUnused(storedFiles.values(), usedUrls);
+
+        int imported = insertError == null ? books.size() : 0;
+        if(imported > 0) {
+            // Most covers didn't fit in the thumbnail queue during the import, generate the missing variants now
+            thumbnailService.startBackfill();
+        }
+        log.info("Book import finished: {} imported, {} failed", imported, manifest.size() - imported);
+        return new BookImportResult(imported, manifest.size() - imported, items, null);
+    }
+
+    /**
+     * Stores the files of the archive that the manifest references, the others are skipped unread.
+     * Entries are inflated here, one after the other, and handed to up to parallelism workers through an
+     * EntryPipe: the next entry is read while the previous ones are still being hashed, written and committed.
+     * @return why the whole archive is rejected (too many entries or bytes), or null
+     * @throws IOException if the archive can't be read or a file can't be stored
+     */
+    private String storeFiles(ZipInputStream zip, Set<String> referenced, Map<String, String> storedFiles,
+                              Map<String, String> rejectedFiles) throws IOException {
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, virtualThreads
+                ? Thread.ofVirtual().name("book-import-", 0).factory()
+                : Thread.ofPlatform().name("book-import-", 0).daemon(true).factory());
+        // Bounds the entries in flight, the reader waits for a free worker before starting the next one
+        Semaphore slots = new Semaphore(parallelism);
+        Map<String, Future<String>> uploads = new LinkedHashMap<>();
+
+        String error = null;
+        IOException failure = null;
+        try {
+            error = readEntries(zip, referenced, workers, slots, uploads);
+        } catch(IOException e) {
+            failure = e;
+        }
+        boolean aborted = error != null || failure != null;
+        if(aborted) {
+            // Interrupts the workers still reading their entry, their uploads are discarded
+            workers.shutdownNow().forEach(task -> ((Future<?>) task).cancel(false));
+        } else {
+            workers.shutdown();
+        }
+
+        for(Map.Entry<String, Future<String>> upload : uploads.entrySet()) {
+            try {
+                storedFiles.put(upload.getKey(), upload.getValue().get());
+            } catch(ExecutionException e) {
+                if(e.getCause() instanceof IllegalArgumentException) {
+                    rejectedFiles.put(upload.getKey(), e.getCause().getMessage());
+                } else if(!aborted && failure == null) {
+                    failure = e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+                }
+            } catch(CancellationException e) {
+                // Never started, the archive was aborted
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = new InterruptedIOException("Book import interrupted");
+                break;
+            }
+        }
+        if(failure != null) {
+            deleteUnused(storedFiles.values(), Set.of());
+            throw failure;
+        }
+        return error;
+    }
+
+    /**
+     * Reads the entries after the manifest, submitting one upload per referenced path.
+     * @return why the archive is rejected, or null
+     */
+    private String readEntries(ZipInputStream zip, Set<String> referenced, ExecutorService workers,
+                               Semaphore slots, Map<String, Future<String>> uploads) throws IOException {
+        int entries = 0;
+        long totalBytes = 0;
+        byte[] buffer = new byte[PIPE_CHUNK_SIZE];
+        try {
+            ZipEntry entry;
+            while((entry = nextFile(zip)) != null) {
+                if(++entries > maxEntries) {
+                    return "Too many entries in the archive (maximum " + maxEntries + ")";
+                }
+                String path = normalize(entry.getName());
+                if(!referenced.contains(path) || uploads.containsKey(path)) {
+                    continue; // Skipped by the next getNextEntry, never stored
+                }
+
+                slots.acquire();
+                EntryPipe pipe = new EntryPipe();
+                uploads.put(path, workers.submit(() -> {
+                    try(pipe) {
+                        return uploadService.saveStream(pipe, path, maxFileSize);
+                    } finally {
+                        slots.release();
+                    }
+                }));
+                int read;
+                while((read = zip.read(buffer)) > 0) {
+                    totalBytes += read;
+                    if(totalBytes > maxTotalBytes) {
+                        return "The files of the archive exceed " + maxTotalBytes + " bytes";
+                    }
+                    if(!pipe.offer(Arrays.copyOf(buffer, read))) {
+                        break; // The worker rejected the file (too large), the rest of the entry is skipped
+                    }
+                }
+                pipe.finish();
+            }
+            return null;
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Book import interrupted");
+        }
+    }
+
+    private static ZipEntry nextFile(ZipInputStream zip) throws IOException {
+        ZipEntry entry;
+        while((entry = zip.getNextEntry()) != null && entry.isDirectory()) {
+            // Directories carry no content
+        }
+        return entry;
+    }
+
+    /**
+     * Inserts the books and the digest notification in one transaction, flushing every batch-size books
+     * so that Hibernate sends JDBC batches and the persistence context stays small.
+     * @return null on success, the error otherwise (nothing was inserted)
+     */
+    private String insert(List<Book> books) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for(int i = 0; i < books.size(); i++) {
+                    bookRepository.save(books.get(i));
+                    if((i + 1) % batchSize == 0) {
+                        entityManager.flush();
+                        entityManager.clear();
+                    }
+                }
+                notificationOutbox.booksImported(books);
+                // Indexes and the catalog snapshot are updated once, after commit
+                bookNotificationPublisher.publishBooksImported(books);
+            });
+            return null;
+        } catch(RuntimeException e) {
+            log.error("Book import failed, no book was inserted", e);
+            return "Database error, no book of this import was saved";
+        }
+    }
+
+    /**
+     * @param storedFiles the stored files, or null to check only the item itself
+     * @return why the item can't be imported, or null if it can
+     */
+    private static String validate(BookImportItem item, Map<String, String> storedFiles,
+                                   Map<String, String> rejectedFiles) {
+        if(item == null || isBlank(item.getTitle()) || isBlank(item.getAuthor())) {
+            return "title and author are required";
+        }
+        if(isBlank(item.getCover()) || isBlank(item.getPdf())) {
+            return "cover and pdf are required";
+        }
+        if(storedFiles == null) {
+            return null; // Checking the manifest alone, before any file is stored
+        }
+        for(String path : List.of(normalize(item.getCover()), normalize(item.getPdf()))) {
+            if(rejectedFiles.containsKey(path)) {
+                return "'" + path + "': " + rejectedFiles.get(path);
+            }
+            if(!storedFiles.containsKey(path)) {
+                return "'" + path + "' is missing from the archive";
+            }
+        }
+        if(!storedFiles.get(normalize(item.getPdf())).endsWith(".pdf")) {
+            return "pdf must be a PDF file";
+        }
+        if(storedFiles.get(normalize(item.getCover())).endsWith(".pdf")) {
+            return "cover must be a JPG or PNG image";
+        }
+        return null;
+    }
+
+    /**
+     * Hands the stored files no imported book uses to deleteFile. Only older, already stored blobs that the archive
+     * deduplicated against can go right away: deleteFile keeps referenced files and the files this import wrote,
+     * which are within the grace period and left to StorageReconciler.
+     */
+    private void deleteUnused(Collection<String> storedUrls, Set<String> usedUrls) {
+        // The same blob can be stored under several archive paths (deduplicated)
+        for(String url : new HashSet<>(storedUrls)) {
+            if(usedUrls.contains(url)) {
+                continue;
+            }
+            try {
+                uploadService.deleteFile(url);
+            } catch(IOException e) {
+                log.warn("Could not remove unused imported file '{}': {}", url, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Archive paths as keys: forward slashes, no leading "./" or "/".
+     * They are only used to match manifest entries with files, never to build a filesystem path.
+     */
+    private static String normalize(String path) {
+        String normalized = path.trim().replace('\\', '/');
+        while(normalized.startsWith("./") || normalized.startsWith("/")) {
+            normalized = normalized.substring(normalized.startsWith("/") ? 1 : 2);
+        }
+        return normalized;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    /**
+     * The content of one archive entry, passed in chunks from the thread reading the archive to the worker
+     * storing it. At most PIPE_CHUNKS chunks wait in the queue, so an entry in flight holds about 1 MB.
+     */
+    private static final class EntryPipe extends InputStream {
+
+        private static final byte[] END = new byte[0];
+
+        private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(PIPE_CHUNKS);
+        private volatile boolean closed;
+        private byte[] current;
+        private int position;
+
+        /**
+         * Called by the reader, waits while the queue is full.
+         * @return false if the worker closed the pipe, the chunk is then dropped
+         */
+        boolean offer(byte[] chunk) throws InterruptedException {
+            while(!closed) {
+                if(chunks.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Called by the reader after the last chunk.
+         */
+        void finish() throws InterruptedException {
+            offer(END);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if(current == null || (current != END && position == current.length)) {
+                try {
+                    current = chunks.take();
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Archive entry no longer available");
+                }
+                position = 0;
+            }
+            if(current == END) {
+                return -1;
+            }
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            chunks.clear();
+        }
+    }
+}
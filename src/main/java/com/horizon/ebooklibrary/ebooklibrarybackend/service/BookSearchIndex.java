@@ -0,0 +1,454 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.service;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.Book;
+import com.horizon.ebooklibrary.ebooklibrarybackend.repository.BookRepository;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-process inverted index used by GET /books/search.
+ * <p>
+ * Indexes the title, author and description of every book and ranks matches with BM25,
+ * weighting the fields so that title matches count more than author matches, and author more than description.
+ * Each query token is matched exactly, by prefix (for as-you-type search) and, if nothing else matches,
+ * with a bounded number of typos using a deletion neighbourhood of the vocabulary: one deletion for every term,
+ * two for terms long enough to be within two edits of a long token.
+ * <p>
+ * The index is built on startup and kept current by BookService.addBook and deleteBook, so queries never touch the database.
+ * Writes are rare, so a read/write lock is enough to keep concurrent queries consistent. Books added or deleted while
+ * a rebuild reads the catalog are recorded and replayed onto the reloaded index, whether or not the query saw them.
+ */
+@SuppressWarnings("unused")
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookSearchIndex {
+
+    // Indexed fields and their weights
+    private static final int TITLE = 0;
+    private static final int AUTHOR = 1;
+    private static final int DESCRIPTION = 2;
+    private static final float[] FIELD_WEIGHTS = {3.0f, 2.0f, 1.0f};
+
+    // BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Relative weight of a term reached by prefix or typo expansion, compared to an exact match
+    private static final double PREFIX_WEIGHT = 0.8;
+    private static final double TYPO_WEIGHT = 0.6;
+    // Limits on the expansion of one query token, keeps the cost of short prefixes bounded
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MIN_TYPO_LENGTH = 4;
+    private static final int LONG_TOKEN_LENGTH = 8;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private final BookRepository bookRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Term -> (book ID -> term frequency per field), sorted so prefixes are a range scan
+    private final TreeMap<String, Map<Long, int[]>> postings = new TreeMap<>();
+    // One- and (for long terms) two-character deletions of a term -> terms, used to find typo candidates
+    private final Map<String, Set<String>> deletions = new HashMap<>();
+    private final Map<Long, IndexedBook> books = new HashMap<>();
+    private final long[] totalFieldLengths = new long[FIELD_WEIGHTS.length];
+    // Changes made while a rebuild reads the catalog, replayed once it is loaded; null when no rebuild is running.
+    // Guarded by the write lock
+    private List<Runnable> pendingChanges;
+
+    /**
+     * A book together with the field lengths and distinct terms needed for scoring and removal.
+     */
+    private record IndexedBook(Book book, int[] fieldLengths, Set<String> terms) {
+    }
+
+    /**
+     * Builds the index from the catalog once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        // Record changes before the query, so a change either is committed before it or gets replayed
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<Book> catalog;
+        try {
+            catalog = bookRepository.findAll();
+        } catch(RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            deletions.clear();
+            books.clear();
+            Arrays.fill(totalFieldLengths, 0);
+            catalog.forEach(this::addInternal);
+            // Every change is idempotent (re-indexing or removing a book)
+            pendingChanges.forEach(Runnable::run);
+            pendingChanges = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("Search index built in {} ms: {} books, {} terms",
+                (System.nanoTime() - start) / 1_000_000, catalog.size(), postings.size());
+    }
+
+    /**
+     * Adds (or re-indexes) a book.
+     * @param book the saved book
+     */
+    public void add(Book book) {
+        lock.writeLock().lock();
+        try {
+            apply(() -> {
+                removeInternal(book.getID());
+                addInternal(book);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a deleted book from the index.
+     * @param bookId ID of the deleted book
+     */
+    public void remove(long bookId) {
+        lock.writeLock().lock();
+        try {
+            apply(() -> removeInternal(bookId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Searches the catalog.
+     * @param query free text query
+     * @param limit maximum number of results
+     * @return matching books, best match first
+     */
+    public List<Book> search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if(tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = new HashMap<>();
+            for(String token : new LinkedHashSet<>(tokens)) {
+                // Best contribution of this token per book, so several expansions of one token don't add up
+                Map<Long, Double> tokenScores = new HashMap<>();
+                expand(token).forEach((term, weight) -> scoreTerm(term, weight, tokenScores));
+                tokenScores.forEach((bookId, score) -> scores.merge(bookId, score, Double::sum));
+            }
+            return topResults(scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of indexed books
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return books.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Splits text into lower-case, accent-free tokens of letters and digits.
+     * @param text the text, may be null
+     * @return the tokens in order
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if(text == null || text.isBlank()) {
+            return tokens;
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        for(String token : SEPARATORS.split(normalized.toLowerCase(Locale.ROOT))) {
+            if(!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Applies a change to the index and records it for the running rebuild, if any. Must hold the write lock.
+     */
+    private void apply(Runnable change) {
+        change.run();
+        if(pendingChanges != null) {
+            pendingChanges.add(change);
+        }
+    }
+
+    private void addInternal(Book book) {
+        String[] fields = new String[FIELD_WEIGHTS.length];
+        fields[TITLE] = book.getTitle();
+        fields[AUTHOR] = book.getAuthor();
+        fields[DESCRIPTION] = book.getDescription();
+        int[] lengths = new int[fields.length];
+        Set<String> terms = new HashSet<>();
+
+        for(int field = 0; field < fields.length; field++) {
+            List<String> tokens = tokenize(fields[field]);
+            lengths[field] = tokens.size();
+            totalFieldLengths[field] += tokens.size();
+            for(String token : tokens) {
+                postings.computeIfAbsent(token, t -> new HashMap<>())
+                        .computeIfAbsent(book.getID(), id -> new int[FIELD_WEIGHTS.length])[field]++;
+                if(terms.add(token) && postings.get(token).size() == 1) {
+                    addDeletions(token); // First occurrence of the term in the whole index
+                }
+            }
+        }
+        books.put(book.getID(), new IndexedBook(book, lengths, terms));
+    }
+
+    private void removeInternal(long bookId) {
+        IndexedBook indexed = books.remove(bookId);
+        if(indexed == null) {
+            return;
+        }
+        for(int field = 0; field < totalFieldLengths.length; field++) {
+            totalFieldLengths[field] -= indexed.fieldLengths()[field];
+        }
+        for(String term : indexed.terms()) {
+            Map<Long, int[]> termPostings = postings.get(term);
+            termPostings.remove(bookId);
+            if(termPostings.isEmpty()) {
+                postings.remove(term);
+                removeDeletions(term);
+            }
+        }
+    }
+
+    /**
+     * Expands a query token into indexed terms with a weight: the exact term, terms it is a prefix of,
+     * and when neither exists, terms within the allowed edit distance.
+     */
+    private Map<String, Double> expand(String token) {
+        Map<String, Double> expansions = new HashMap<>();
+        if(postings.containsKey(token)) {
+            expansions.put(token, 1.0);
+        }
+
+        if(token.length() >= MIN_PREFIX_LENGTH) {
+            int count = 0;
+            for(String term : postings.subMap(token, false, token + Character.MAX_VALUE, false).keySet()) {
+                if(count++ >= MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                expansions.putIfAbsent(term, PREFIX_WEIGHT);
+            }
+        }
+
+        if(expansions.isEmpty() && token.length() >= MIN_TYPO_LENGTH) {
+            int maxEdits = token.length() >= LONG_TOKEN_LENGTH ? 2 : 1;
+            for(String candidate : typoCandidates(token, maxEdits)) {
+                if(withinEditDistance(token, candidate, maxEdits)) {
+                    expansions.putIfAbsent(candidate, TYPO_WEIGHT);
+                }
+            }
+        }
+        return expansions;
+    }
+
+    /**
+     * Candidates sharing a string with the token after at most maxEdits deletions on each side
+     * (covers maxEdits insertions, deletions or substitutions). Candidates are verified with the real edit
+     * distance afterwards.
+     */
+    private Set<String> typoCandidates(String token, int maxEdits) {
+        Set<String> variants = new HashSet<>();
+        variants.add(token);
+        for(String deletion : deletionsOf(token)) {
+            variants.add(deletion);
+            if(maxEdits > 1) {
+                variants.addAll(deletionsOf(deletion));
+            }
+        }
+
+        Set<String> candidates = new HashSet<>();
+        for(String variant : variants) {
+            if(postings.containsKey(variant)) {
+                candidates.add(variant);
+            }
+            Set<String> terms = deletions.get(variant);
+            if(terms != null) {
+                candidates.addAll(terms);
+            }
+        }
+        return candidates;
+    }
+
+    private void scoreTerm(String term, double weight, Map<Long, Double> tokenScores) {
+        Map<Long, int[]> termPostings = postings.get(term);
+        if(termPostings == null) {
+            return;
+        }
+        int n = books.size();
+        int df = termPostings.size();
+        double idf = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+
+        for(Map.Entry<Long, int[]> posting : termPostings.entrySet()) {
+            int[] tf = posting.getValue();
+            int[] lengths = books.get(posting.getKey()).fieldLengths();
+            double score = 0;
+            for(int field = 0; field < tf.length; field++) {
+                if(tf[field] == 0) {
+                    continue;
+                }
+                double avgLength = Math.max(1.0, (double) totalFieldLengths[field] / n);
+                double norm = tf[field] * (K1 + 1) / (tf[field] + K1 * (1 - B + B * lengths[field] / avgLength));
+                score += FIELD_WEIGHTS[field] * norm;
+            }
+            tokenScores.merge(posting.getKey(), weight * idf * score, Math::max);
+        }
+    }
+
+    private List<Book> topResults(Map<Long, Double> scores, int limit) {
+        // Min-heap of the best 'limit' results, ties broken by ID for a stable order
+        Comparator<Map.Entry<Long, Double>> order = Map.Entry.<Long, Double>comparingByValue()
+                .thenComparing(Map.Entry.<Long, Double>comparingByKey().reversed());
+        PriorityQueue<Map.Entry<Long, Double>> best = new PriorityQueue<>(limit + 1, order);
+        for(Map.Entry<Long, Double> entry : scores.entrySet()) {
+            best.offer(entry);
+            if(best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<Map.Entry<Long, Double>> ranked = new ArrayList<>(best);
+        ranked.sort(order.reversed());
+        List<Book> results = new ArrayList<>(ranked.size());
+        ranked.forEach(entry -> results.add(books.get(entry.getKey()).book()));
+        return results;
+    }
+
+    private void addDeletions(String term) {
+        if(term.length() < MIN_TYPO_LENGTH - 1) {
+            return;
+        }
+        for(String deletion : neighbourhoodOf(term)) {
+            deletions.computeIfAbsent(deletion, d -> new HashSet<>()).add(term);
+        }
+    }
+
+    private void removeDeletions(String term) {
+        for(String deletion : neighbourhoodOf(term)) {
+            Set<String> terms = deletions.get(deletion);
+            if(terms != null) {
+                terms.remove(term);
+                if(terms.isEmpty()) {
+                    deletions.remove(deletion);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletions indexed for a term: single ones, plus double ones when the term is long enough to be
+     * within two edits of a long token (two edits change the length by two at most).
+     */
+    private static Set<String> neighbourhoodOf(String term) {
+        Set<String> result = deletionsOf(term);
+        if(term.length() >= LONG_TOKEN_LENGTH - 2) {
+            for(String deletion : new ArrayList<>(result)) {
+                result.addAll(deletionsOf(deletion));
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> deletionsOf(String term) {
+        Set<String> result = new HashSet<>();
+        for(int i = 0; i < term.length(); i++) {
+            result.add(term.substring(0, i) + term.substring(i + 1));
+        }
+        return result;
+    }
+
+    /**
+     * Optimal string alignment distance (Levenshtein plus adjacent transpositions) with an early exit
+     * once every cell of a row exceeds maxEdits.
+     */
+    static boolean withinEditDistance(String a, String b, int maxEdits) {
+        if(Math.abs(a.length() - b.length()) > maxEdits) {
+            return false;
+        }
+        int[] twoBack = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for(int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+
+        for(int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for(int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if(i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    current[j] = Math.min(current[j], twoBack[j - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if(rowMin > maxEdits) {
+                return false;
+            }
+            int[] recycled = twoBack;
+            twoBack = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()] <= maxEdits;
+    }
+}
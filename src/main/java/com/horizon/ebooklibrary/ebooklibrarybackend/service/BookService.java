@@ -1,23 +1,27 @@
 package com.horizon.ebooklibrary.ebooklibrarybackend.service;
 
+import com.horizon.ebooklibrary.ebooklibrarybackend.dto.BookCursor;
+import com.horizon.ebooklibrary.ebooklibrarybackend.dto.BookPage;
+import com.horizon.ebooklibrary.ebooklibrarybackend.dto.BookSort;
+import com.horizon.ebooklibrary.ebooklibrarybackend.dto.BookSummary;
 import com.horizon.ebooklibrary.ebooklibrarybackend.entity.Book;
 import com.horizon.ebooklibrary.ebooklibrarybackend.entity.User;
 import com.horizon.ebooklibrary.ebooklibrarybackend.entity.UserBook;
 import com.horizon.ebooklibrary.ebooklibrarybackend.repository.BookRepository;
 import com.horizon.ebooklibrary.ebooklibrarybackend.repository.UserBookRepository;
-import com.horizon.ebooklibrary.ebooklibrarybackend.repository.UserRepository;
-import com.horizon.ebooklibrary.ebooklibrarybackend.security.JwtUtils;
 import com.horizon.ebooklibrary.ebooklibrarybackend.event.BookNotificationPublisher;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.stream.Collectors;
 
-import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 
 /**
@@ -30,18 +34,123 @@ public class BookService {
 
     private final BookRepository bookRepository;
     private final UserBookRepository userBookRepository;
-    private final UserRepository userRepository;
     private final UploadService uploadService;
-    private final JwtUtils jwtUtils;
-    private final HttpServletRequest request;
+    private final UserIdentityCache userIdentityCache;
     private final BookNotificationPublisher bookNotificationPublisher;
+    private final ReadStateIndex readStateIndex;
+    private final BookSearchIndex bookSearchIndex;
+    private final CatalogSnapshot catalogSnapshot;
+    private final NotificationOutbox notificationOutbox;
+    private final FileReclaimer fileReclaimer;
+
+    // Page size used when the client doesn't send a limit, and the hard cap on any requested limit
+    @Value("${books.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${books.page.max-size:200}")
+    private int maxPageSize;
+
+    @Value("${books.search.max-results:50}")
+    private int maxSearchResults;
+
+    /**
+     * @return the ETag identifying the current version of the catalog
+     */
+    public String getCatalogETag() {
+        return catalogSnapshot.get().etag();
+    }
+
+    /**
+     * The whole catalog with its pre-serialized JSON, served as is by GET /books.
+     * @return the current catalog snapshot
+     */
+    public CatalogSnapshot.Snapshot getCatalogSnapshot() {
+        return catalogSnapshot.get();
+    }
 
     /**
      * Get a list of all books in the library (not per-user).
      * @return List of all books in the system
      */
     public List<Book> getAllBooks() {
-        return bookRepository.findAll();
+        return catalogSnapshot.get().books();
+    }
+
+    /**
+     * Get one page of the catalog using keyset pagination.
+     * The database seeks directly to the cursor position (no OFFSET), so deep pages are as cheap as the first.
+     * @param sort the sort order
+     * @param cursor opaque cursor from the previous page, null for the first page
+     * @param limit requested page size, null for the default (capped at the maximum page size)
+     * @return the page and the cursor of the next page
+     * @throws IllegalArgumentException if the cursor is invalid
+     */
+    public BookPage getBooksPage(BookSort sort, String cursor, Integer limit) {
+        int size = resolvePageSize(limit);
+        BookCursor after = cursor == null ? BookCursor.first(sort) : BookCursor.decode(cursor, sort);
+        Limit fetch = Limit.of(size + 1); // One extra row tells whether there is a next page
+
+        List<Book> rows = switch(sort) {
+            case ID -> bookRepository.findPageOrderById(after.getId(), fetch);
+            case TITLE -> bookRepository.findPageOrderByTitle(after.getKey(), after.getId(), fetch);
+            case AUTHOR -> bookRepository.findPageOrderByAuthor(after.getKey(), after.getId(), fetch);
+        };
+        return toPage(rows, sort, size);
+    }
+
+    /**
+     * Get one page of the current user's read books.
+     * Served from the ReadStateIndex, or with a keyset query while the index is loading.
+     * @see #getBooksPage(BookSort, String, Integer)
+     */
+    public BookPage getReadBooksPage(BookSort sort, String cursor, Integer limit) {
+        long userId = userIdentityCache.getCurrentUserId();
+        if(readStateIndex.isReady()) {
+            return pageOf(readStateIndex.getReadBooks(userId), sort, cursor, limit);
+        }
+
+        int size = resolvePageSize(limit);
+        BookCursor after = cursor == null ? BookCursor.first(sort) : BookCursor.decode(cursor, sort);
+        Limit fetch = Limit.of(size + 1);
+        List<BookSummary> rows = switch(sort) {
+            case ID -> userBookRepository.findReadPageOrderById(userId, after.getId(), fetch);
+            case TITLE -> userBookRepository.findReadPageOrderByTitle(userId, after.getKey(), after.getId(), fetch);
+            case AUTHOR -> userBookRepository.findReadPageOrderByAuthor(userId, after.getKey(), after.getId(), fetch);
+        };
+        return toPage(rows.stream().map(BookSummary::toBook).collect(Collectors.toList()), sort, size);
+    }
+
+    /**
+     * Get one page of the current user's unread books.
+     * Served from the ReadStateIndex, or with a keyset query while the index is loading.
+     * @see #getBooksPage(BookSort, String, Integer)
+     */
+    public BookPage getUnreadBooksPage(BookSort sort, String cursor, Integer limit) {
+        long userId = userIdentityCache.getCurrentUserId();
+        if(readStateIndex.isReady()) {
+            return pageOf(readStateIndex.getUnreadBooks(userId), sort, cursor, limit);
+        }
+
+        int size = resolvePageSize(limit);
+        BookCursor after = cursor == null ? BookCursor.first(sort) : BookCursor.decode(cursor, sort);
+        Limit fetch = Limit.of(size + 1);
+        List<BookSummary> rows = switch(sort) {
+            case ID -> bookRepository.findUnreadPageOrderById(userId, after.getId(), fetch);
+            case TITLE -> bookRepository.findUnreadPageOrderByTitle(userId, after.getKey(), after.getId(), fetch);
+            case AUTHOR -> bookRepository.findUnreadPageOrderByAuthor(userId, after.getKey(), after.getId(), fetch);
+        };
+        return toPage(rows.stream().map(BookSummary::toBook).collect(Collectors.toList()), sort, size);
+    }
+
+    /**
+     * Full text search over title, author and description, served from the in-memory BookSearchIndex.
+     * @param query the search text
+     * @param limit maximum number of results, null for the configured maximum
+     * @return matching books, best match first
+     */
+    public List<Book> searchBooks(String query, Integer limit) {
+        int size = limit == null ? maxSearchResults : Math.max(1, Math.min(limit, maxSearchResults));
+        return bookSearchIndex.search(query, size);
     }
 
     /**
@@ -49,9 +158,13 @@ public class BookService {
      * @return List of read books
      */
     public List<Book> getReadBooks() {
-        User user = extractUserFromRequest();
-        return userBookRepository.findAllByUserAndReadTrue(user).stream()
-                .map(UserBook::getBook)
+        long userId = userIdentityCache.getCurrentUserId();
+        if(readStateIndex.isReady()) {
+            return readStateIndex.getReadBooks(userId);
+        }
+        // Index still loading: one join query returning projections
+        return userBookRepository.findReadBookSummaries(userId).stream()
+                .map(BookSummary::toBook)
                 .collect(Collectors.toList());
     }
 
@@ -60,12 +173,28 @@ public class BookService {
      * @return List of unread books.
      */
     public List<Book> getUnreadBooks() {
-        User user = extractUserFromRequest();
-        return userBookRepository.findAllByUserAndReadFalse(user).stream()
-                .map(UserBook::getBook)
+        long userId = userIdentityCache.getCurrentUserId();
+        if(readStateIndex.isReady()) {
+            return readStateIndex.getUnreadBooks(userId);
+        }
+        // Only read marks are stored, so unread = catalog minus the user's read set
+        return bookRepository.findUnreadBookSummaries(userId).stream()
+                .map(BookSummary::toBook)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Number of books the current user has not read, served from the in-memory index.
+     * @return unread book count
+     */
+    public long getUnreadCount() {
+        long userId = userIdentityCache.getCurrentUserId();
+        if(readStateIndex.isReady()) {
+            return readStateIndex.getUnreadCount(userId);
+        }
+        return bookRepository.countUnreadByUserId(userId);
+    }
+
     /**
      * Marks a specific book as read for the current user.
      * @param bookId ID of the book to mark
@@ -94,92 +223,120 @@ public class BookService {
 
     /**
      * Adds a new book to the library & sends a notification.
+     * A new book is unread for every user by default, so no user_books rows are written here.
+     * The notification is written to the outbox in the same transaction as the book, so it is sent
+     * (by OutboxRelay) if and only if the book was committed. In-memory indexes are updated after the commit.
      * @param book the book to add
      * @return the saved book
      */
+    @Transactional
     public Book addBook(Book book) {
         Book savedBook = bookRepository.save(book);
 
-        // Add to user_books as unread for all users
-        List<User> users = userRepository.findAll();
-        List<UserBook> userBooks = new ArrayList<>();
-
-        for(User user : users) {
-            UserBook userBook = UserBook.builder()
-                    .user(user)
-                    .book(savedBook)
-                    .read(false)
-                    .build();
-            userBooks.add(userBook);
-        }
-
-        userBookRepository.saveAll(userBooks);
-
-
-        // Trigger new book FCM push notification
+        // New book FCM push notification, delivered after commit
+        notificationOutbox.newBook(savedBook);
         bookNotificationPublisher.publishNewBook(savedBook);
 
         return savedBook;
     }
 
     /**
-     * Deletes a book by ID along with all associated UserBook records and uploaded files.
+     * Deletes a book by ID along with all associated UserBook records.
+     * The book is removed with one statement and the database cascades to user_books, no UserBook is loaded.
+     * A tombstone written in the same transaction records its files, which FileReclaimer removes in the background
+     * once no other book references them (uploads are deduplicated), so a locked or missing file can't fail the deletion.
+     * The book leaves the in-memory indexes and the catalog as soon as the deletion commits.
      * @param id the Id of the book to delete
      */
+    @Transactional
     public void deleteBook(Long id) {
         Book book = bookRepository.findById(id)
                         .orElseThrow(() -> new RuntimeException("Book not found with ID: " + id));
 
-        try{
-            // Delete the cover image file
-            uploadService.deleteFile(book.getCoverUrl());
-
-            // Delete the PDF file
-            uploadService.deleteFile(book.getPdfUrl());
-
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to delete the associated files for book: " + book.getTitle(), e);
+        // 0 rows: deleted concurrently by another request
+        if(bookRepository.deleteBookById(id) == 0) {
+            throw new RuntimeException("Book not found with ID: " + id);
         }
-
-        // Delete the book entity (this triggers deletion of associated UserBook entries due to CascadeType.ALL)
-        bookRepository.delete(book);
+        fileReclaimer.tombstone(book);
+        bookNotificationPublisher.publishBookDeleted(book.getID());
     }
 
     /**
      * Helper method to update the read/unread status of a book for the authenticated user.
+     * Marking as read stores a row in user_books, marking as unread removes it.
      * @param bookId ID of the book to change
      * @param read true = mark as read; false = mark as unread
      */
     private void updateUserBookStatus(Long bookId, boolean read) {
-        User user = extractUserFromRequest();
+        User user = userIdentityCache.getCurrentUser(); // Reference only, no users query
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new RuntimeException("Book not found with ID: " + bookId));
 
-        UserBook userBook = userBookRepository.findByUserAndBook(user, book)
-                .orElse(UserBook.builder()
-                        .user(user)
-                        .book(book)
-                        .build());
+        // Not transactional: every repository call below commits before the index applies the mark
+        if(!read) {
+            readStateIndex.mark(user.getId(), book.getID(), false,
+                    () -> userBookRepository.deleteByUserAndBook(user, book));
+            return;
+        }
 
-        userBook.setRead(read);
-        userBookRepository.save(userBook);
+        readStateIndex.mark(user.getId(), book.getID(), true, () -> {
+            UserBook userBook = userBookRepository.findByUserAndBook(user, book)
+                    .orElse(UserBook.builder()
+                            .user(user)
+                            .book(book)
+                            .build());
+
+            if(!userBook.isRead()) {
+                userBook.setRead(true);
+                userBookRepository.save(userBook);
+            }
+        });
     }
 
     /**
-     * Extracts the currently authenticated user from the JWT token in the Authorization header.
-     * @return Authenticated User entity
+     * Keyset pagination over an in-memory listing (read/unread books come from the ReadStateIndex).
+     * Keeps only the smallest limit + 1 books after the cursor in a bounded heap instead of sorting the whole list.
      */
-    private User extractUserFromRequest() {
-        String authHeader = request.getHeader("Authorization");
-        if(authHeader == null || !authHeader.startsWith("Bearer ")) {
-            throw new RuntimeException("Missing or invalid Authorization header");
+    private BookPage pageOf(List<Book> books, BookSort sort, String cursor, Integer limit) {
+        int size = resolvePageSize(limit);
+        BookCursor after = cursor == null ? BookCursor.first(sort) : BookCursor.decode(cursor, sort);
+
+        // Max-heap on the sort order, so the largest of the kept books is evicted first
+        PriorityQueue<Book> smallest = new PriorityQueue<>(size + 1, sort.comparator().reversed());
+        for(Book book : books) {
+            if(after.isBefore(book)) {
+                smallest.offer(book);
+                if(smallest.size() > size + 1) {
+                    smallest.poll();
+                }
+            }
         }
 
-        String token = authHeader.substring(7); // After "Bearer "
-        String email = jwtUtils.getEmailFromToken(token);
+        List<Book> rows = new ArrayList<>(smallest);
+        rows.sort(sort.comparator());
+        return toPage(rows, sort, size);
+    }
 
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
+    /**
+     * Cuts a fetched list of at most size + 1 rows down to the page and computes the next cursor.
+     */
+    private BookPage toPage(List<Book> rows, BookSort sort, int size) {
+        if(rows.size() <= size) {
+            return new BookPage(rows, null);
+        }
+        List<Book> items = rows.subList(0, size);
+        return new BookPage(items, BookCursor.after(sort, items.get(size - 1)).encode());
+    }
+
+    /**
+     * @param limit the requested page size, may be null
+     * @return the page size to use, between 1 and the configured maximum
+     */
+    private int resolvePageSize(Integer limit) {
+        if(limit == null) {
+            return defaultPageSize;
+        }
+        return Math.max(1, Math.min(limit, maxPageSize));
     }
 
 }
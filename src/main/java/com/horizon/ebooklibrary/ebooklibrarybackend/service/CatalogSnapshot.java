@@ -0,0 +1,114 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.Book;
+import com.horizon.ebooklibrary.ebooklibrarybackend.repository.BookRepository;
+
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Immutable snapshot of the whole catalog, as served by GET /books.
+ * <p>
+ * Holds the books, their JSON serialization, a gzip-compressed copy of it and an ETag derived from the content.
+ * Reads are a single volatile reference read: the response bytes are ready, nothing is queried or serialized.
+ * The snapshot is replaced (copy-on-write) after a book was added or deleted and the change committed.
+ * Concurrent rebuild requests coalesce: a caller whose change is already covered by a rebuild that started
+ * after its request doesn't rebuild again.
+ */
+@SuppressWarnings("unused")
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CatalogSnapshot {
+
+    /**
+     * One version of the catalog.
+     * @param books the books, unmodifiable
+     * @param json the books serialized as a JSON array
+     * @param gzip the same JSON, gzip-compressed
+     * @param etag strong ETag of the JSON representation (quoted)
+     * @param gzipETag strong ETag of the gzip representation (quoted)
+     */
+    public record Snapshot(List<Book> books, byte[] json, byte[] gzip, String etag, String gzipETag) {
+    }
+
+    private final BookRepository bookRepository;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+
+    // Rebuild requests so far, and how many of them the current snapshot covers
+    private final AtomicLong requested = new AtomicLong();
+    private long covered = -1; // Guarded by rebuildLock
+    // Not synchronized: a virtual thread blocked on a monitor would pin its carrier
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    /**
+     * @return the current snapshot, built on first use
+     */
+    public Snapshot get() {
+        Snapshot snapshot = current.get();
+        return snapshot != null ? snapshot : rebuild();
+    }
+
+    /**
+     * Rebuilds the snapshot from the database, call after a catalog change committed.
+     * Returns once a snapshot including the change is published.
+     * @return the new snapshot
+     */
+    public Snapshot rebuild() {
+        long ticket = requested.incrementAndGet();
+        rebuildLock.lock();
+        try {
+            if(covered >= ticket) {
+                return current.get(); // Another caller rebuilt after our request, the change is included
+            }
+            // Every request made so far is covered by a rebuild reading the database from now on
+            long covers = requested.get();
+            Snapshot snapshot = build();
+            current.set(snapshot);
+            covered = covers;
+            log.debug("Catalog snapshot rebuilt: {} books, {} bytes ({} gzip)",
+                    snapshot.books().size(), snapshot.json().length, snapshot.gzip().length);
+            return snapshot;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private Snapshot build() {
+        List<Book> books = List.copyOf(bookRepository.findAll());
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(books);
+            String version = HexFormat.of().formatHex(FileETagStore.newDigest().digest(json), 0, 16);
+            return new Snapshot(books, json, gzip(json),
+                    "\"catalog-" + version + "\"", "\"catalog-" + version + "-gzip\"");
+        } catch(JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the catalog", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try(GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e); // In-memory streams don't fail
+        }
+        return out.toByteArray();
+    }
+}
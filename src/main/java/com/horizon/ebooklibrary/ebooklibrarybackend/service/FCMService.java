@@ -1,43 +1,123 @@
 package com.horizon.ebooklibrary.ebooklibrarybackend.service;
 
+import com.google.firebase.messaging.AndroidConfig;
+import com.google.firebase.messaging.BatchResponse;
 import com.google.firebase.messaging.FirebaseMessaging;
 import com.google.firebase.messaging.FirebaseMessagingException;
 import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.MessagingErrorCode;
 import com.google.firebase.messaging.Notification;
+import com.google.firebase.messaging.SendResponse;
 
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Service responsible for sending push notifications using Firebase Cloud Messaging (FCM).
  * Encapsulates FCM logic to isolate messaging from business logic.
+ * Notifications are not sent from here directly but through NotificationDispatcher, which batches and retries them.
+ * <p>
+ * Metrics: fcm.send (duration of a sendEach call, outcome=success|error)
+ * and fcm.errors (failed messages by FCM error code).
  */
 @SuppressWarnings("unused")
 @Slf4j
 @Service
-public class FCMService {
+@RequiredArgsConstructor
+@Profile("!loadtest") // Load tests use FakeNotificationSender instead of Firebase
+public class FCMService implements NotificationSender {
 
     public static final String TOPIC_NEW_BOOKS = "new_books";
+    // Data key holding the idempotency key of a notification
+    public static final String IDEMPOTENCY_KEY = "idempotency_key";
+
+    // Errors that are worth retrying later, everything else (invalid argument, sender id mismatch...) is permanent
+    private static final Set<MessagingErrorCode> TRANSIENT_ERRORS = EnumSet.of(
+            MessagingErrorCode.UNAVAILABLE, MessagingErrorCode.INTERNAL, MessagingErrorCode.QUOTA_EXCEEDED);
+
+    private final MeterRegistry meterRegistry;
 
     /**
-     * Send a push notification to a given topic
-     * @param topic the FCM topic (without /topics/ prefix)
-     * @param title the notification title
-     * @param body the notification body
-     * @throws FirebaseMessagingException if the send fails
+     * Send a batch of push notifications in a single FCM call (sendEach, up to 500 messages).
+     * @param batch the notifications to send
+     * @return the delivery status of every notification
+     * @throws FirebaseMessagingException if the whole call fails
      */
-    public void sendToTopic(String topic, String title, String body) throws FirebaseMessagingException {
-        Message message = Message.builder()
-                .setTopic(topic)
-                .setNotification(Notification.builder()
-                        .setTitle(title)
-                        .setBody(body)
-                        .build())
-                .build();
-
-        String response = FirebaseMessaging.getInstance().send(message);
-        log.info("FCM message sent to topic '{}': {}", topic, response);
+    @Override
+    public List<Status> send(List<PushNotification> batch) throws FirebaseMessagingException {
+        List<Message> messages = new ArrayList<>(batch.size());
+        for(PushNotification notification : batch) {
+            Message.Builder message = Message.builder()
+                    .setTopic(notification.topic())
+                    .setNotification(Notification.builder()
+                            .setTitle(notification.title())
+                            .setBody(notification.body())
+                            .build());
+
+            // A redelivered notification carries the same key: the app drops it and Android collapses it
+            if(notification.idempotencyKey() != null) {
+                message.putData(IDEMPOTENCY_KEY, notification.idempotencyKey())
+                        .setAndroidConfig(AndroidConfig.builder()
+                                .setCollapseKey(notification.idempotencyKey())
+                                .build());
+            }
+            messages.add(message.build());
+        }
+
+        BatchResponse response;
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            response = FirebaseMessaging.getInstance().sendEach(messages);
+            sample.stop(sendTimer("success"));
+        } catch(FirebaseMessagingException e) {
+            sample.stop(sendTimer("error"));
+            countError(e.getMessagingErrorCode());
+            throw e;
+        }
+        log.info("FCM batch sent: {} succeeded, {} failed", response.getSuccessCount(), response.getFailureCount());
+
+        List<Status> statuses = new ArrayList<>(batch.size());
+        for(SendResponse sendResponse : response.getResponses()) {
+            if(sendResponse.isSuccessful()) {
+                statuses.add(Status.SENT);
+            } else {
+                FirebaseMessagingException e = sendResponse.getException();
+                countError(e.getMessagingErrorCode());
+                boolean transientError = e.getMessagingErrorCode() == null
+                        || TRANSIENT_ERRORS.contains(e.getMessagingErrorCode());
+                statuses.add(transientError ? Status.RETRY : Status.FAILED);
+            }
+        }
+        return statuses;
     }
 
+    private Timer sendTimer(String outcome) {
+        return Timer.builder("fcm.send")
+                .description("Duration of one FCM sendEach call")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Counts a failure by its error code (a small fixed enum, "unknown" when FCM gave none).
+     */
+    private void countError(MessagingErrorCode code) {
+        Counter.builder("fcm.errors")
+                .description("Messages or calls rejected by FCM")
+                .tag("code", code == null ? "unknown" : code.name().toLowerCase())
+                .register(meterRegistry)
+                .increment();
+    }
 }
@@ -0,0 +1,31 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.List;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stand-in for FCMService under the "loadtest" profile: no Firebase project or credentials needed.
+ * Every notification is reported as sent after a simulated network round trip.
+ */
+@SuppressWarnings("unused")
+@Slf4j
+@Service
+@Profile("loadtest")
+public class FakeNotificationSender implements NotificationSender {
+
+    @Value("${loadtest.fake-sender.latency-ms:20}")
+    private long latencyMs;
+
+    @Override
+    public List<Status> send(List<PushNotification> batch) throws InterruptedException {
+        Thread.sleep(latencyMs);
+        log.debug("Fake sender accepted {} notification(s)", batch.size());
+        return Collections.nCopies(batch.size(), Status.SENT);
+    }
+}
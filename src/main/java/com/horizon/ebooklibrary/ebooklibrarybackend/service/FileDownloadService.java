@@ -0,0 +1,305 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.service;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.storage.StorageBackend;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Service that writes a stored file to the HTTP response with byte-range support.
+ * <p>
+ * Handles Range (single and multiple ranges), If-Range and Accept-Ranges so that mobile readers can resume
+ * interrupted downloads and fetch parts of a PDF.
+ * Full files and single ranges are handed to Tomcat's sendfile support, so the kernel copies the bytes
+ * from the page cache to the socket without passing through the JVM heap. This is the only zero-copy path:
+ * when sendfile isn't available (or for multipart/byteranges responses) the bytes are copied with
+ * FileChannel.transferTo into the servlet output stream, which goes through heap buffers.
+ * Objects of a remote storage backend are streamed with one ranged read per requested range.
+ */
+@SuppressWarnings("unused")
+@Slf4j
+@Service
+public class FileDownloadService {
+
+    // Request attributes understood by Tomcat's NIO connector (see org.apache.catalina.Globals)
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    // Largest chunk handed to a single transferTo call
+    private static final long MAX_TRANSFER_CHUNK = 8L * 1024 * 1024;
+
+    /**
+     * Writes the file (or the requested ranges of it) to the response.
+     * The caller is responsible for Content-Type, Content-Disposition and the ETag / Last-Modified headers.
+     * @param file the file to send, must exist
+     * @param contentType the Content-Type of the file
+     * @param etag the strong ETag of the file, used to evaluate If-Range
+     * @param request the current request (Range, If-Range and method are read from it)
+     * @param response the response to write to
+     * @return the number of body bytes sent (or handed to sendfile)
+     * @throws IOException if reading the file or writing to the client fails
+     */
+    public long send(Path file, String contentType, String etag, HttpServletRequest request,
+                     HttpServletResponse response) throws IOException {
+        return send(new FileContent(file), Files.size(file), Files.getLastModifiedTime(file).toMillis(),
+                contentType, etag, request, response);
+    }
+
+    /**
+     * Writes a stored object (or the requested ranges of it) to the response.
+     * Objects on the local filesystem are sent like files (sendfile), others with ranged reads from the backend.
+     * @param storage the backend holding the object
+     * @param object the object to send, as returned by stat
+     * @param contentType the Content-Type of the object
+     * @param etag the strong ETag of the object, used to evaluate If-Range
+     * @param request the current request (Range, If-Range and method are read from it)
+     * @param response the response to write to
+     * @return the number of body bytes sent (or handed to sendfile)
+     * @throws IOException if reading the object or writing to the client fails
+     */
+    public long send(StorageBackend storage, StorageBackend.StoredObject object, String contentType, String etag,
+                     HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path file = storage.localPath(object.key());
+        if(file != null) {
+            return send(file, contentType, etag, request, response);
+        }
+        return send(new StoredContent(storage, object.key()), object.size(), object.lastModified().toEpochMilli(),
+                contentType, etag, request, response);
+    }
+
+    private long send(Content content, long length, long lastModified, String contentType, String etag,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        List<HttpRange> ranges = resolveRanges(request, length, etag, lastModified);
+        if(ranges == null) {
+            // Unparseable or unsatisfiable Range header: '416 Range Not Satisfiable'
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return 0;
+        }
+
+        boolean headOnly = "HEAD".equalsIgnoreCase(request.getMethod());
+
+        if(ranges.isEmpty()) {
+            // No (applicable) Range header: the whole file with '200 OK'
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(contentType);
+            response.setContentLengthLong(length);
+            if(headOnly) {
+                return 0;
+            }
+            content.sendRegion(0, length, request, response);
+            return length;
+        }
+
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+
+        if(ranges.size() == 1) {
+            long start = ranges.get(0).getRangeStart(length);
+            long end = ranges.get(0).getRangeEnd(length);
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            response.setContentLengthLong(end - start + 1);
+            if(headOnly) {
+                return 0;
+            }
+            content.sendRegion(start, end - start + 1, request, response);
+            return end - start + 1;
+        }
+
+        return sendMultipart(content, contentType, length, ranges, headOnly, response);
+    }
+
+    /**
+     * Parses the Range header, honouring If-Range.
+     * @return an empty list to send the full file, the ranges to send, or null if the range is not satisfiable
+     */
+    private List<HttpRange> resolveRanges(HttpServletRequest request, long length, String etag, long lastModified) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if(rangeHeader == null || !ifRangeMatches(request, etag, lastModified)) {
+            return List.of();
+        }
+
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            for(HttpRange range : ranges) {
+                // Throws IllegalArgumentException if the range starts after the end of the file
+                range.getRangeStart(length);
+            }
+            return ranges;
+        } catch(IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * If-Range: the range only applies if the validator still matches the stored file, otherwise the whole file is sent.
+     * An entity tag must be strong and equal to the file's ETag, a date must match Last-Modified exactly (second precision).
+     */
+    private boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if(ifRange == null) {
+            return true;
+        }
+        if(ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag); // Weak tags never match (strong comparison)
+        }
+        try {
+            long date = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return date / 1000 == lastModified / 1000;
+        } catch(IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Sends several ranges as a multipart/byteranges body.
+     * @return the length of the body
+     */
+    private long sendMultipart(Content content, String contentType, long length, List<HttpRange> ranges,
+                               boolean headOnly, HttpServletResponse response) throws IOException {
+
+        String boundary = new String(MimeTypeUtils.generateMultipartBoundary(), StandardCharsets.US_ASCII);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+
+        // Part headers are built up front so that the exact Content-Length is known
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for(HttpRange range : ranges) {
+            long start = range.getRangeStart(length);
+            long end = range.getRangeEnd(length);
+            byte[] header = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": bytes " + start + "-" + end + "/" + length + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(header);
+            contentLength += header.length + (end - start + 1);
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+        response.setContentLengthLong(contentLength);
+
+        if(headOnly) {
+            return 0;
+        }
+
+        OutputStream out = response.getOutputStream();
+        for(int i = 0; i < ranges.size(); i++) {
+            long start = ranges.get(i).getRangeStart(length);
+            long end = ranges.get(i).getRangeEnd(length);
+            out.write(partHeaders.get(i));
+            content.copyRegion(start, end - start + 1, out);
+        }
+        out.write(closing);
+        return contentLength;
+    }
+
+    /**
+     * Moves count bytes from the file channel to the target with transferTo. The target wraps the servlet
+     * output stream, so the JDK reads the file into a heap buffer and writes that to the stream.
+     */
+    private static void transfer(FileChannel source, long position, long count, WritableByteChannel target)
+            throws IOException {
+        long sent = 0;
+        while(sent < count) {
+            long transferred = source.transferTo(position + sent, Math.min(MAX_TRANSFER_CHUNK, count - sent), target);
+            if(transferred <= 0) {
+                throw new IOException("File ended before the requested range was sent");
+            }
+            sent += transferred;
+        }
+    }
+
+    /**
+     * The bytes being sent: a local file or an object of a remote storage backend.
+     */
+    private interface Content {
+
+        /**
+         * Sends a contiguous region as the whole response body.
+         */
+        void sendRegion(long start, long count, HttpServletRequest request, HttpServletResponse response)
+                throws IOException;
+
+        /**
+         * Copies a contiguous region to the stream.
+         */
+        void copyRegion(long start, long count, OutputStream out) throws IOException;
+    }
+
+    private record FileContent(Path file) implements Content {
+
+        /**
+         * Sends a contiguous region of the file, through sendfile when the connector supports it.
+         */
+        @Override
+        public void sendRegion(long start, long count, HttpServletRequest request, HttpServletResponse response)
+                throws IOException {
+
+            if(Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+                // Tomcat performs the transfer after the servlet returns, straight from the file to the socket
+                request.setAttribute(SENDFILE_FILENAME_ATTR, file.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START_ATTR, start);
+                request.setAttribute(SENDFILE_END_ATTR, start + count);
+                return;
+            }
+
+            copyRegion(start, count, response.getOutputStream());
+        }
+
+        @Override
+        public void copyRegion(long start, long count, OutputStream out) throws IOException {
+            try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                transfer(channel, start, count, Channels.newChannel(out));
+            }
+        }
+    }
+
+    private record StoredContent(StorageBackend storage, String key) implements Content {
+
+        @Override
+        public void sendRegion(long start, long count, HttpServletRequest request, HttpServletResponse response)
+                throws IOException {
+            copyRegion(start, count, response.getOutputStream());
+        }
+
+        /**
+         * One ranged read per region, so only the requested bytes are fetched from the backend.
+         */
+        @Override
+        public void copyRegion(long start, long count, OutputStream out) throws IOException {
+            if(count == 0) {
+                return; // Empty object, a ranged read needs at least one byte
+            }
+            try(InputStream in = storage.openRange(key, start, count)) {
+                if(in.transferTo(out) != count) {
+                    throw new IOException("Object ended before the requested range was sent");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.service;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.storage.StorageBackend;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Provides the strong ETag (SHA-256 of the content) of every uploaded file.
+ * <p>
+ * Uploads are stored under the SHA-256 of their content (see UploadService), so their ETag is simply their name
+ * and serving a file never has to read it just to produce a validator.
+ * Files from before content addressing get their digest computed once, on first request.
+ * It is persisted as a small sidecar file in the hidden ".etags" directory of the upload directory
+ * and cached in memory together with the size and modification time it belongs to.
+ */
+@SuppressWarnings("unused")
+@Slf4j
+@Component
+public class FileETagStore {
+
+    // Hidden directory (inside upload.dir) holding one sidecar file per legacy upload
+    public static final String ETAG_DIR = ".etags";
+
+    // "<sha256 hex>.<ext>", the name already is the digest
+    private static final Pattern CONTENT_ADDRESSED_NAME = Pattern.compile("[0-9a-f]{64}\\.[a-z0-9]+");
+    // "<sha256 hex>-w<width>.<ext>", thumbnail of a content-addressed image (derived from it deterministically)
+    private static final Pattern CONTENT_ADDRESSED_VARIANT = Pattern.compile("[0-9a-f]{64}-w\\d+\\.[a-z0-9]+");
+
+    @Value("${upload.dir}")
+    private String uploadDir;
+
+    // Filename -> ETag and the file version it was computed for
+    private final ConcurrentHashMap<String, CachedETag> cache = new ConcurrentHashMap<>();
+
+    private record CachedETag(String etag, long size, long lastModified) {
+    }
+
+    /**
+     * Returns the strong ETag of a stored file (quoted, ready to be used as header value).
+     * @param file the stored file
+     * @return the ETag
+     * @throws IOException if the file or its sidecar can't be read
+     */
+    public String getETag(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        if(isContentAddressed(name)) {
+            return "\"" + name.substring(0, name.indexOf('.')) + "\"";
+        }
+
+        long size = Files.size(file);
+        long lastModified = lastModified(file);
+
+        CachedETag cached = cache.get(name);
+        if(cached != null && cached.size() == size && cached.lastModified() == lastModified) {
+            return cached.etag();
+        }
+
+        // Sidecar of a legacy upload, valid as long as the file wasn't modified after it
+        Path sidecar = sidecarOf(name);
+        String etag;
+        if(Files.exists(sidecar) && lastModified(sidecar) >= lastModified) {
+            etag = Files.readString(sidecar).trim();
+        } else {
+            // First request (or file replaced in place): digest it once and remember the result
+            etag = toETag(digest(file));
+            Files.createDirectories(sidecar.getParent());
+            Files.writeString(sidecar, etag);
+            log.info("Computed missing ETag for '{}'", name);
+        }
+
+        cache.put(name, new CachedETag(etag, size, lastModified));
+        return etag;
+    }
+
+    /**
+     * Returns the strong ETag of an object stored remotely (no local file to digest or keep a sidecar for):
+     * derived from the name of content-addressed files, otherwise the entity tag reported by the backend.
+     * @param object the stored object
+     * @return the ETag, quoted
+     */
+    public String getETag(StorageBackend.StoredObject object) {
+        String name = object.key().substring(object.key().lastIndexOf('/') + 1);
+        if(isContentAddressed(name)) {
+            return "\"" + name.substring(0, name.indexOf('.')) + "\"";
+        }
+        if(object.etag() == null) {
+            // Size and modification time identify the version well enough for a backend without entity tags
+            return "\"" + Long.toHexString(object.size()) + "-"
+                    + Long.toHexString(object.lastModified().toEpochMilli()) + "\"";
+        }
+        return object.etag().startsWith("\"") ? object.etag() : "\"" + object.etag() + "\"";
+    }
+
+    /**
+     * Forgets the ETag of a deleted file.
+     * @param filename the name of the deleted file
+     * @throws IOException if the sidecar can't be removed
+     */
+    public void remove(String filename) throws IOException {
+        cache.remove(filename);
+        Files.deleteIfExists(sidecarOf(filename));
+    }
+
+    /**
+     * @return a new SHA-256 MessageDigest
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e); // Mandatory in every JRE
+        }
+    }
+
+    private static byte[] digest(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        try(InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return digest.digest();
+    }
+
+    private static String toETag(byte[] sha256) {
+        return "\"" + HexFormat.of().formatHex(sha256) + "\"";
+    }
+
+    private static long lastModified(Path file) throws IOException {
+        return Files.getLastModifiedTime(file).toMillis();
+    }
+
+    private static boolean isContentAddressed(String name) {
+        return CONTENT_ADDRESSED_NAME.matcher(name).matches() || CONTENT_ADDRESSED_VARIANT.matcher(name).matches();
+    }
+
+    private Path sidecarOf(String filename) {
+        return Paths.get(uploadDir).toAbsolutePath().normalize()
+                .resolve(ETAG_DIR)
+                .resolve(filename + ".sha256");
+    }
+}
@@ -0,0 +1,150 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.service;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.Book;
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.BookTombstone;
+import com.horizon.ebooklibrary.ebooklibrarybackend.repository.BookTombstoneRepository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Removes the files of deleted books in the background.
+ * <p>
+ * BookService.deleteBook writes a BookTombstone with the book's cover and PDF URLs in the deleting transaction.
+ * Every poll claims a batch of due tombstones through a LeasedTaskQueue (leased like the outbox)
+ * and deletes their files through UploadService, which keeps files other books still reference.
+ * Missing files count as removed. A file uploaded within the grace period is kept by UploadService, the tombstone
+ * is then deferred (not counted as an attempt) until the grace period ends. A failure (e.g. a locked file) is retried
+ * with exponential backoff, after max-attempts the tombstone is marked failed (not reclaimed) and keeps the last error
+ * for inspection.
+ * <p>
+ * Metrics: files.reclaim.pending, files.reclaim.failed and
+ * files.reclaim.tombstones{outcome=reclaimed|deferred|retried|failed}.
+ */
+@SuppressWarnings("unused")
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FileReclaimer {
+
+    private final BookTombstoneRepository bookTombstoneRepository;
+    private final UploadService uploadService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${files.reclaim.batch-size:100}")
+    private int batchSize;
+
+    @Value("${files.reclaim.lease-ms:300000}")
+    private long leaseMs;
+
+    @Value("${files.reclaim.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${files.reclaim.backoff.initial-ms:5000}")
+    private long initialBackoffMs;
+
+    @Value("${files.reclaim.backoff.max-ms:3600000}")
+    private long maxBackoffMs;
+
+    @Value("${files.reclaim.retention-hours:168}")
+    private long retentionHours;
+
+    private LeasedTaskQueue<BookTombstone> queue;
+    private Counter reclaimedCounter;
+    private Counter deferredCounter;
+
+    @PostConstruct
+    public void init() {
+        queue = new LeasedTaskQueue<>(bookTombstoneRepository, transactionTemplate,
+                new LeasedTaskQueue.Settings(batchSize, leaseMs, maxAttempts, initialBackoffMs, maxBackoffMs,
+                        Duration.ofHours(retentionHours)),
+                tombstone -> "Removing the files of deleted book #" + tombstone.getBookId(),
+                meterRegistry, "files.reclaim", "files.reclaim.tombstones");
+        reclaimedCounter = Counter.builder("files.reclaim.tombstones")
+                .tag("outcome", "reclaimed")
+                .register(meterRegistry);
+        deferredCounter = Counter.builder("files.reclaim.tombstones")
+                .tag("outcome", "deferred")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records the files of a book deleted in the current transaction, to be removed once it commits.
+     * @param book the deleted book
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void tombstone(Book book) {
+        Instant now = Instant.now();
+        bookTombstoneRepository.save(BookTombstone.builder()
+                .bookId(book.getID())
+                .coverUrl(book.getCoverUrl())
+                .pdfUrl(book.getPdfUrl())
+                .deletedAt(now)
+                .availableAt(now)
+                .build());
+    }
+
+    /**
+     * Claims the next batch of due tombstones and removes their files.
+     */
+    @Scheduled(fixedDelayString = "${files.reclaim.poll-interval-ms:5000}")
+    public void poll() {
+        for(BookTombstone tombstone : queue.claim(Instant.now())) {
+            reclaim(tombstone);
+        }
+        queue.refreshGauges();
+    }
+
+    /**
+     * Deletes reclaimed and failed tombstones once they are older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${files.reclaim.cleanup-interval-ms:3600000}")
+    public void cleanup() {
+        long total = queue.cleanup();
+        if(total > 0) {
+            log.info("Removed {} finished book tombstones", total);
+        }
+    }
+
+    private void reclaim(BookTombstone tombstone) {
+        Instant keptUntil;
+        try {
+            keptUntil = latest(uploadService.deleteFile(tombstone.getCoverUrl()),
+                    uploadService.deleteFile(tombstone.getPdfUrl()));
+        } catch(IOException | RuntimeException e) {
+            queue.fail(tombstone, e);
+            return;
+        }
+        if(keptUntil != null) {
+            // Uploaded less than the grace period ago, deleteFile keeps it until then
+            queue.defer(tombstone, keptUntil, "File within the upload grace period");
+            deferredCounter.increment();
+            return;
+        }
+        bookTombstoneRepository.markReclaimed(tombstone.getId(), Instant.now());
+        reclaimedCounter.increment();
+        log.info("Files of deleted book #{} reclaimed", tombstone.getBookId());
+    }
+
+    private static Instant latest(Instant a, Instant b) {
+        if(a == null || b == null) {
+            return a == null ? b : a;
+        }
+        return a.isAfter(b) ? a : b;
+    }
+}
@@ -0,0 +1,154 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.service;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.LeasedTask;
+import com.horizon.ebooklibrary.ebooklibrarybackend.repository.LeasedTaskRepository;
+
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Claim, lease, backoff and cleanup of a work table polled in the background (OutboxRelay, FileReclaimer).
+ * <p>
+ * claim() locks a batch of due rows with SELECT ... FOR UPDATE SKIP LOCKED and leases them
+ * (availableAt moved to now + lease) in a short transaction, so several instances can poll the same table.
+ * The owner processes the rows and marks them done itself. A failed row is released again with exponential
+ * backoff and moved to the failed state (failedAt and the last error set) after max-attempts. A row that can't be
+ * processed yet is deferred to a given time without using up an attempt.
+ * If the application dies in between, the lease expires and another poll claims the row again:
+ * processing is at-least-once.
+ * <p>
+ * Metrics: {name}.pending and {name}.failed (rows in each state, refreshed by refreshGauges),
+ * and the retried and failed outcomes of the owner's counter.
+ * @param <T> the row type
+ */
+@Slf4j
+public class LeasedTaskQueue<T extends LeasedTask> {
+
+    /**
+     * @param batchSize rows claimed per poll, and deleted per cleanup statement
+     * @param leaseMs how long a claimed row stays hidden from other polls
+     * @param maxAttempts attempts before a row is marked failed
+     * @param initialBackoffMs delay after the first failure, doubled after every further one
+     * @param maxBackoffMs longest delay between two attempts
+     * @param retention how long done and failed rows are kept
+     */
+    public record Settings(int batchSize, long leaseMs, int maxAttempts, long initialBackoffMs, long maxBackoffMs,
+                           Duration retention) { }
+
+    private final LeasedTaskRepository<T> repository;
+    private final TransactionTemplate transactionTemplate;
+    private final Settings settings;
+    // Names a row in the logs, e.g. "Outbox event 12 (NEW_BOOK #3)"
+    private final Function<T, String> describe;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+
+    /**
+     * @param name prefix of the gauges, e.g. "outbox"
+     * @param outcomeCounter counter with an outcome tag, the queue registers its "retried" and "failed" outcomes
+     */
+    public LeasedTaskQueue(LeasedTaskRepository<T> repository, TransactionTemplate transactionTemplate,
+                           Settings settings, Function<T, String> describe,
+                           MeterRegistry meterRegistry, String name, String outcomeCounter) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.settings = settings;
+        this.describe = describe;
+
+        Gauge.builder(name + ".pending", pending, AtomicLong::get)
+                .description("Rows waiting to be processed")
+                .register(meterRegistry);
+        Gauge.builder(name + ".failed", failed, AtomicLong::get)
+                .description("Rows given up on after max-attempts, kept until the retention period ends")
+                .register(meterRegistry);
+        retriedCounter = Counter.builder(outcomeCounter).tag("outcome", "retried").register(meterRegistry);
+        failedCounter = Counter.builder(outcomeCounter).tag("outcome", "failed").register(meterRegistry);
+    }
+
+    /**
+     * Locks and leases the next batch of due rows, counting the attempt.
+     * @param now the current time
+     * @return the claimed rows, to be marked done or passed to fail()
+     */
+    public List<T> claim(Instant now) {
+        List<T> claimed = transactionTemplate.execute(status -> {
+            List<T> rows = repository.lockNextBatch(now, settings.batchSize());
+            for(T row : rows) {
+                row.setAvailableAt(now.plusMillis(settings.leaseMs())); // Lease: nobody else claims it meanwhile
+                row.setAttempts(row.getAttempts() + 1);
+            }
+            return rows;
+        });
+        return claimed == null ? List.of() : claimed;
+    }
+
+    /**
+     * Releases a claimed row after a failed attempt with exponential backoff,
+     * or marks it failed once it reached max-attempts.
+     */
+    public void fail(T row, Throwable e) {
+        Instant now = Instant.now();
+        String error = String.valueOf(e.getMessage());
+        if(error.length() > 500) {
+            error = error.substring(0, 500);
+        }
+
+        if(row.getAttempts() >= settings.maxAttempts()) {
+            // Never claimed again, the row stays in the table with the last error for inspection
+            repository.markFailed(row.getId(), now, error);
+            failedCounter.increment();
+            log.error("{} given up on after {} attempts: {}", describe.apply(row), row.getAttempts(), error);
+            return;
+        }
+
+        long backoff = Math.min(settings.maxBackoffMs(),
+                settings.initialBackoffMs() << Math.min(row.getAttempts() - 1, 20));
+        repository.reschedule(row.getId(), now.plusMillis(backoff), row.getAttempts(), error);
+        retriedCounter.increment();
+        log.warn("{} failed (attempt {}), retrying in {} ms: {}", describe.apply(row), row.getAttempts(), backoff, error);
+    }
+
+    /**
+     * Releases a claimed row that can't be processed before a given time, without counting it as a failure.
+     * @param availableAt when the row becomes claimable again
+     * @param reason kept as the row's last error
+     */
+    public void defer(T row, Instant availableAt, String reason) {
+        // The claim counted an attempt, a deferral isn't one
+        repository.reschedule(row.getId(), availableAt, row.getAttempts() - 1, reason);
+        log.info("{} deferred until {}: {}", describe.apply(row), availableAt, reason);
+    }
+
+    public void refreshGauges() {
+        pending.set(repository.countPending());
+        failed.set(repository.countFailed());
+    }
+
+    /**
+     * Deletes done and failed rows older than the retention period, one batch per statement.
+     * @return number of rows deleted
+     */
+    public long cleanup() {
+        Instant before = Instant.now().minus(settings.retention());
+        long total = 0;
+        int deleted;
+        do {
+            deleted = repository.deleteFinishedBefore(before, settings.batchSize());
+            total += deleted;
+        } while(deleted > 0);
+        return total;
+    }
+}
@@ -0,0 +1,340 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded in-process queue that delivers push notifications off the request path.
+ * <p>
+ * A single worker thread drains the queue in batches (one FCM sendEach call per batch).
+ * Transient failures are retried with exponential backoff and jitter, up to max-attempts.
+ * A circuit breaker stops calling Firebase after repeated failed batches and lets a single trial batch through
+ * once the open period is over.
+ * The queue is bounded: when it is full, enqueue fails immediately instead of blocking the caller.
+ * <p>
+ * Metrics: notifications.queue.depth, notifications.send.latency (per batch),
+ * notifications.delivery{outcome=sent|failed|retried|rejected} and notifications.circuit.state
+ * (0 closed, 1 half-open, 2 open).
+ */
+@SuppressWarnings("unused")
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NotificationDispatcher {
+
+    public enum CircuitState { CLOSED, HALF_OPEN, OPEN }
+
+    // How long the worker waits for new notifications before checking the retry queue again
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final NotificationSender sender;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${notifications.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${notifications.batch-size:100}")
+    private int batchSize;
+
+    @Value("${notifications.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${notifications.backoff.initial-ms:500}")
+    private long initialBackoffMs;
+
+    @Value("${notifications.backoff.max-ms:60000}")
+    private long maxBackoffMs;
+
+    @Value("${notifications.circuit-breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${notifications.circuit-breaker.open-ms:30000}")
+    private long openMs;
+
+    // The worker mostly waits on Firebase, so it follows the application's virtual-thread mode
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // New notifications, and the ones waiting for their next attempt
+    private final BlockingQueue<Delivery> queue = new LinkedBlockingQueue<>();
+    private final DelayQueue<Delivery> retries = new DelayQueue<>();
+    // Accepted but not finished (queued, retrying or being sent), bounded by queue-capacity
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private volatile CircuitState circuitState = CircuitState.CLOSED;
+    private int consecutiveFailures;
+    private long openUntilNanos;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    private Timer sendLatency;
+    private Counter sentCounter;
+    private Counter failedCounter;
+    private Counter retriedCounter;
+    private Counter rejectedCounter;
+
+    /**
+     * A notification with its result and retry state.
+     */
+    private static final class Delivery implements Delayed {
+        private final PushNotification notification;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+        private int attempts;
+        private long dueAtNanos;
+
+        private Delivery(PushNotification notification) {
+            this.notification = notification;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAtNanos, ((Delivery) other).dueAtNanos);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        sendLatency = Timer.builder("notifications.send.latency")
+                .description("Duration of one batch send to the notification provider")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        sentCounter = deliveryCounter("sent");
+        failedCounter = deliveryCounter("failed");
+        retriedCounter = deliveryCounter("retried");
+        rejectedCounter = deliveryCounter("rejected");
+        Gauge.builder("notifications.queue.depth", pending, AtomicInteger::get)
+                .description("Notifications accepted and not delivered yet")
+                .register(meterRegistry);
+        Gauge.builder("notifications.circuit.state", this, dispatcher -> dispatcher.circuitState.ordinal())
+                .description("0 closed, 1 half-open, 2 open")
+                .register(meterRegistry);
+
+        running = true;
+        worker = virtualThreads
+                ? Thread.ofVirtual().name("notification-dispatcher").unstarted(this::run)
+                : Thread.ofPlatform().name("notification-dispatcher").daemon(true).unstarted(this::run);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+
+        // Whatever is left is failed, callers that need delivery (the outbox) retry it later
+        List<Delivery> left = new ArrayList<>();
+        queue.drainTo(left);
+        left.addAll(retries);
+        retries.clear();
+        for(Delivery delivery : left) {
+            delivery.result.completeExceptionally(new CancellationException("Dispatcher stopped"));
+        }
+        if(!left.isEmpty()) {
+            log.warn("Notification dispatcher stopped with {} undelivered notification(s)", left.size());
+        }
+    }
+
+    /**
+     * Queues a notification for delivery, never blocks.
+     * @param notification the notification to send
+     * @return completes when the notification was delivered, or exceptionally if it was rejected
+     *         (queue full), permanently failed or ran out of attempts
+     */
+    public CompletableFuture<Void> enqueue(PushNotification notification) {
+        if(pending.incrementAndGet() > queueCapacity) {
+            pending.decrementAndGet();
+            rejectedCounter.increment();
+            return CompletableFuture.failedFuture(
+                    new RejectedExecutionException("Notification queue is full (" + queueCapacity + ")"));
+        }
+
+        Delivery delivery = new Delivery(notification);
+        queue.add(delivery);
+        return delivery.result;
+    }
+
+    /**
+     * @return notifications accepted and not delivered yet
+     */
+    public int getQueueDepth() {
+        return pending.get();
+    }
+
+    /**
+     * @return the current state of the circuit breaker
+     */
+    public CircuitState getCircuitState() {
+        return circuitState;
+    }
+
+    /**
+     * Worker loop: wait until the circuit allows a call, collect a batch, send it, settle every notification.
+     */
+    private void run() {
+        while(running) {
+            try {
+                awaitCircuit();
+                List<Delivery> batch = nextBatch();
+                if(!batch.isEmpty()) {
+                    sendBatch(batch);
+                }
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch(RuntimeException e) {
+                log.error("Unexpected error in notification dispatcher", e);
+            }
+        }
+    }
+
+    /**
+     * Takes due retries first, then new notifications, up to batch-size. Waits briefly when both are empty.
+     */
+    private List<Delivery> nextBatch() throws InterruptedException {
+        List<Delivery> batch = new ArrayList<>(batchSize);
+        retries.drainTo(batch, batchSize); // Only retries whose backoff has elapsed
+        queue.drainTo(batch, batchSize - batch.size());
+
+        if(batch.isEmpty()) {
+            Delivery first = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            if(first != null) {
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+            }
+        }
+        return batch;
+    }
+
+    private void sendBatch(List<Delivery> batch) {
+        List<PushNotification> notifications = new ArrayList<>(batch.size());
+        for(Delivery delivery : batch) {
+            notifications.add(delivery.notification);
+        }
+
+        List<NotificationSender.Status> statuses = null;
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            statuses = sender.send(notifications);
+        } catch(Exception e) {
+            log.warn("Notification batch of {} failed: {}", batch.size(), e.getMessage());
+        } finally {
+            sample.stop(sendLatency);
+        }
+
+        boolean answered = statuses != null && statuses.size() == batch.size();
+        // A thrown exception, or only transient errors, counts as a failure of the provider
+        if(answered && (statuses.contains(NotificationSender.Status.SENT)
+                || !statuses.contains(NotificationSender.Status.RETRY))) {
+            onCallSucceeded();
+        } else {
+            onCallFailed();
+        }
+
+        for(int i = 0; i < batch.size(); i++) {
+            Delivery delivery = batch.get(i);
+            NotificationSender.Status status = answered ? statuses.get(i) : NotificationSender.Status.RETRY;
+            switch(status) {
+                case SENT -> finish(delivery, null);
+                case FAILED -> finish(delivery, new IllegalStateException("Notification rejected by the provider"));
+                case RETRY -> retry(delivery);
+            }
+        }
+    }
+
+    /**
+     * Schedules another attempt with exponential backoff and full jitter, or fails the notification
+     * once it ran out of attempts.
+     */
+    private void retry(Delivery delivery) {
+        delivery.attempts++;
+        if(delivery.attempts >= maxAttempts) {
+            finish(delivery, new IllegalStateException("Notification failed after " + delivery.attempts + " attempts"));
+            return;
+        }
+
+        long backoff = Math.min(maxBackoffMs, initialBackoffMs << Math.min(delivery.attempts - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1);
+        delivery.dueAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+        retries.add(delivery);
+        retriedCounter.increment();
+    }
+
+    private void finish(Delivery delivery, Exception failure) {
+        pending.decrementAndGet();
+        if(failure == null) {
+            sentCounter.increment();
+            delivery.result.complete(null);
+        } else {
+            failedCounter.increment();
+            log.error("Notification to topic '{}' dropped: {}", delivery.notification.topic(), failure.getMessage());
+            delivery.result.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * Blocks while the circuit is open, then lets the next batch through as a trial (half-open).
+     */
+    private void awaitCircuit() throws InterruptedException {
+        if(circuitState != CircuitState.OPEN) {
+            return;
+        }
+        long remaining = openUntilNanos - System.nanoTime();
+        if(remaining > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+        circuitState = CircuitState.HALF_OPEN;
+        log.info("Notification circuit half-open, sending a trial batch");
+    }
+
+    private void onCallSucceeded() {
+        if(circuitState != CircuitState.CLOSED) {
+            log.info("Notification circuit closed");
+        }
+        circuitState = CircuitState.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    private void onCallFailed() {
+        consecutiveFailures++;
+        if(circuitState == CircuitState.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            circuitState = CircuitState.OPEN;
+            openUntilNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(openMs);
+            log.warn("Notification circuit open for {} ms after {} failed batch(es)", openMs, consecutiveFailures);
+        }
+    }
+
+    private Counter deliveryCounter(String outcome) {
+        return Counter.builder("notifications.delivery")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,69 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.service;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.Book;
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.OutboxEvent;
+import com.horizon.ebooklibrary.ebooklibrarybackend.repository.OutboxEventRepository;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Writes notifications to the transactional outbox.
+ * Must be called from the transaction that performs the change, the row is committed (or rolled back) with it
+ * and OutboxRelay sends it once it is visible.
+ */
+@SuppressWarnings("unused")
+@Service
+@RequiredArgsConstructor
+public class NotificationOutbox {
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    /**
+     * Records the "new book" notification for a book saved in the current transaction.
+     * @param book the book that was just added
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void newBook(Book book) {
+        Instant now = Instant.now();
+        outboxEventRepository.save(OutboxEvent.builder()
+                .idempotencyKey(UUID.randomUUID().toString())
+                .eventType(OutboxEvent.TYPE_NEW_BOOK)
+                .aggregateId(book.getID())
+                .topic(FCMService.TOPIC_NEW_BOOKS)
+                .title("New Book: " + book.getTitle())
+                .body("By " + book.getAuthor() + " - now in the library!")
+                .createdAt(now)
+                .availableAt(now)
+                .build());
+    }
+
+    /**
+     * Records a single digest notification for the books of a bulk import, instead of one per book.
+     * @param books the books added in the current transaction, not empty
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void booksImported(List<Book> books) {
+        Book first = books.get(0);
+        Instant now = Instant.now();
+        outboxEventRepository.save(OutboxEvent.builder()
+                .idempotencyKey(UUID.randomUUID().toString())
+                .eventType(OutboxEvent.TYPE_BOOKS_IMPORTED)
+                .aggregateId(first.getID())
+                .topic(FCMService.TOPIC_NEW_BOOKS)
+                .title(books.size() == 1 ? "New Book: " + first.getTitle() : books.size() + " new books")
+                .body(books.size() == 1
+                        ? "By " + first.getAuthor() + " - now in the library!"
+                        : "\"" + first.getTitle() + "\" and " + (books.size() - 1) + " more - now in the library!")
+                .createdAt(now)
+                .availableAt(now)
+                .build());
+    }
+}
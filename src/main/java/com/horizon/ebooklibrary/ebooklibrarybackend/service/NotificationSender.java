@@ -0,0 +1,25 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.service;
+
+import java.util.List;
+
+/**
+ * Delivers batches of push notifications.
+ * FCMService is the production implementation, tests and local runs can plug in a fake
+ * so that NotificationDispatcher never talks to Firebase.
+ */
+public interface NotificationSender {
+
+    /**
+     * Outcome of a single notification of a batch.
+     * SENT: delivered, RETRY: transient failure (worth sending again), FAILED: permanent failure.
+     */
+    enum Status { SENT, RETRY, FAILED }
+
+    /**
+     * Sends a batch of notifications.
+     * @param batch the notifications to send
+     * @return one status per notification, in the order of the batch
+     * @throws Exception if the whole batch failed (the dispatcher retries all of it)
+     */
+    List<Status> send(List<PushNotification> batch) throws Exception;
+}
@@ -0,0 +1,136 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.service;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.OutboxEvent;
+import com.horizon.ebooklibrary.ebooklibrarybackend.repository.OutboxEventRepository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Background relay of the transactional outbox: delivers committed OutboxEvents through NotificationDispatcher.
+ * <p>
+ * Every poll claims a batch of due events through a LeasedTaskQueue (SELECT ... FOR UPDATE SKIP LOCKED, leased)
+ * and hands them to the dispatcher. Delivered events are marked processed, failed ones are released again
+ * with exponential backoff and marked failed after max-attempts.
+ * If the application dies in between, the lease expires and another poll picks the event up again:
+ * delivery is at-least-once, and the idempotency key sent with each notification lets clients drop duplicates.
+ * <p>
+ * Metrics: outbox.pending, outbox.failed, outbox.relay.lag (age of the oldest pending event),
+ * outbox.relay.events{outcome=published|retried|failed} and outbox.relay.delivery.delay (commit to delivery).
+ */
+@SuppressWarnings("unused")
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final NotificationDispatcher notificationDispatcher;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${outbox.relay.batch-size:100}")
+    private int batchSize;
+
+    @Value("${outbox.relay.lease-ms:300000}")
+    private long leaseMs;
+
+    @Value("${outbox.relay.max-attempts:20}")
+    private int maxAttempts;
+
+    @Value("${outbox.relay.backoff.initial-ms:1000}")
+    private long initialBackoffMs;
+
+    @Value("${outbox.relay.backoff.max-ms:3600000}")
+    private long maxBackoffMs;
+
+    @Value("${outbox.retention-hours:168}")
+    private long retentionHours;
+
+    // Refreshed on every poll, read by the gauge
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    private LeasedTaskQueue<OutboxEvent> queue;
+    private Counter publishedCounter;
+    private Timer deliveryDelay;
+
+    @PostConstruct
+    public void init() {
+        queue = new LeasedTaskQueue<>(outboxEventRepository, transactionTemplate,
+                new LeasedTaskQueue.Settings(batchSize, leaseMs, maxAttempts, initialBackoffMs, maxBackoffMs,
+                        Duration.ofHours(retentionHours)),
+                event -> "Outbox event " + event.getId() + " (" + event.getEventType() + " #" + event.getAggregateId() + ")",
+                meterRegistry, "outbox", "outbox.relay.events");
+        Gauge.builder("outbox.relay.lag", lagMillis, lag -> lag.get() / 1000.0)
+                .description("Age in seconds of the oldest outbox event not delivered yet")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        publishedCounter = Counter.builder("outbox.relay.events")
+                .tag("outcome", "published")
+                .register(meterRegistry);
+        deliveryDelay = Timer.builder("outbox.relay.delivery.delay")
+                .description("Time from the outbox write to the delivery of the notification")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Claims the next batch of due events and hands them to the dispatcher.
+     */
+    @Scheduled(fixedDelayString = "${outbox.relay.poll-interval-ms:1000}")
+    public void poll() {
+        Instant now = Instant.now();
+        for(OutboxEvent event : queue.claim(now)) {
+            publish(event);
+        }
+        queue.refreshGauges();
+        Instant oldest = outboxEventRepository.findOldestPendingCreatedAt();
+        lagMillis.set(oldest == null ? 0 : Math.max(0, Duration.between(oldest, now).toMillis()));
+    }
+
+    /**
+     * Deletes delivered and failed events once they are older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${outbox.cleanup-interval-ms:3600000}")
+    public void cleanup() {
+        long total = queue.cleanup();
+        if(total > 0) {
+            log.info("Removed {} finished outbox events", total);
+        }
+    }
+
+    private void publish(OutboxEvent event) {
+        PushNotification notification = new PushNotification(
+                event.getTopic(), event.getTitle(), event.getBody(), event.getIdempotencyKey());
+
+        notificationDispatcher.enqueue(notification).whenComplete((ignored, e) -> {
+            if(e == null) {
+                onDelivered(event);
+            } else {
+                queue.fail(event, e);
+            }
+        });
+    }
+
+    private void onDelivered(OutboxEvent event) {
+        Instant now = Instant.now();
+        outboxEventRepository.markProcessed(event.getId(), now);
+        publishedCounter.increment();
+        deliveryDelay.record(Duration.between(event.getCreatedAt(), now));
+        log.info("Outbox event {} ({} #{}) delivered", event.getId(), event.getEventType(), event.getAggregateId());
+    }
+}
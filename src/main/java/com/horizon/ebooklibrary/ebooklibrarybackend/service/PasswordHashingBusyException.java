@@ -0,0 +1,12 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.service;
+
+/**
+ * Thrown when the password hashing executor is saturated (queue full or no result in time).
+ * Mapped to '503 Service Unavailable' with a Retry-After header by AuthController.
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
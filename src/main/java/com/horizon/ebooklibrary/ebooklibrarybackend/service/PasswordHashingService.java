@@ -0,0 +1,144 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs the CPU-heavy BCrypt work (signup, login) on a dedicated, size-capped pool instead of the Tomcat workers.
+ * <p>
+ * At most 'threads' hashes run at once and at most 'queue-capacity' wait; anything beyond that, or a hash that
+ * doesn't finish within 'timeout-ms', fails fast with PasswordHashingBusyException (503 + Retry-After),
+ * so a login burst can't starve file downloads and catalog reads of CPU.
+ * The pool uses platform threads on purpose: the work is CPU-bound and must stay capped.
+ */
+@SuppressWarnings("unused")
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PasswordHashingService {
+
+    private final PasswordEncoder passwordEncoder;
+
+    // 0 = half of the available processors
+    @Value("${security.password-hashing.threads:0}")
+    private int threads;
+
+    @Value("${security.password-hashing.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${security.password-hashing.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("Password hashing pool: {} thread(s), queue of {}", poolSize, queueCapacity);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Hashes a raw password.
+     * @param rawPassword the password to hash
+     * @return the encoded password
+     * @throws PasswordHashingBusyException if the pool is saturated
+     */
+    public String encode(String rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Checks a raw password against a stored hash.
+     * @param rawPassword the password provided by the user
+     * @param encodedPassword the stored hash
+     * @return true if they match
+     * @throws PasswordHashingBusyException if the pool is saturated
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * @param encodedPassword a stored hash
+     * @return true if the hash was made with a lower cost than the configured one and should be re-hashed
+     */
+    public boolean needsUpgrade(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Hashes a password in the background, for work nobody waits on (rehash after login).
+     * Silently skipped when the pool is busy, the next login tries again.
+     * @param rawPassword the password to hash
+     * @param onEncoded receives the new hash
+     */
+    public void encodeInBackground(String rawPassword, Consumer<String> onEncoded) {
+        try {
+            executor.execute(() -> {
+                try {
+                    onEncoded.accept(passwordEncoder.encode(rawPassword));
+                } catch(RuntimeException e) {
+                    log.warn("Background password rehash failed: {}", e.getMessage());
+                }
+            });
+        } catch(RejectedExecutionException e) {
+            log.debug("Password hashing pool busy, rehash skipped");
+        }
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch(RejectedExecutionException e) {
+            throw new PasswordHashingBusyException("Password hashing queue is full");
+        }
+
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch(TimeoutException e) {
+            future.cancel(true);
+            throw new PasswordHashingBusyException("Password hashing timed out");
+        } catch(InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingBusyException("Interrupted while waiting for password hashing");
+        } catch(ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
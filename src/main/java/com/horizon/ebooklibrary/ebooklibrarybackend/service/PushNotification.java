@@ -0,0 +1,11 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.service;
+
+/**
+ * A push notification waiting to be delivered to an FCM topic.
+ * @param topic the FCM topic (without /topics/ prefix)
+ * @param title the notification title
+ * @param body the notification body
+ * @param idempotencyKey unique key of the notification, delivered with it so clients can drop duplicates (may be null)
+ */
+public record PushNotification(String topic, String title, String body, String idempotencyKey) {
+}
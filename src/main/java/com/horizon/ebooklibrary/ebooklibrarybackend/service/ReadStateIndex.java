@@ -0,0 +1,356 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.service;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.Book;
+import com.horizon.ebooklibrary.ebooklibrarybackend.repository.BookRepository;
+import com.horizon.ebooklibrary.ebooklibrarybackend.repository.UserBookRepository;
+
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory read-side index of the per-user read state.
+ * <p>
+ * Holds the catalog (book ID -> Book) and, for every user with at least one read mark,
+ * the set of read book IDs as a compressed Roaring bitmap.
+ * The index is rebuilt from user_books once the application is ready and is then kept current by BookService,
+ * so read/unread listings and unread counts don't need a database round trip.
+ * <p>
+ * Marks go through mark(), which runs the database write and the bitmap update under a lock striped by user,
+ * so concurrent marks of one user reach the index in the order they were committed. Bitmaps are updated in place
+ * and read under the same lock; marks of different users don't wait for each other.
+ * <p>
+ * A rebuild loads into new maps. Marks and catalog changes arriving meanwhile are applied as usual and also
+ * recorded, then replayed onto the loaded maps before they replace the current ones, so none of them is lost
+ * whether or not the database stream already saw it (every change is idempotent). Changes share the read side
+ * of rebuildLock, only the start of a rebuild and the final swap take the write side.
+ */
+@SuppressWarnings("unused")
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReadStateIndex {
+
+    private static final int USER_LOCK_STRIPES = 64;
+
+    private final BookRepository bookRepository;
+    private final UserBookRepository userBookRepository;
+
+    // Book ID -> Book, ordered by ID so listings have a stable order
+    private final ConcurrentSkipListMap<Long, Book> catalog = new ConcurrentSkipListMap<>();
+    // Kept separately since ConcurrentSkipListMap.size() is O(n)
+    private final AtomicInteger catalogSize = new AtomicInteger();
+    // User ID -> read book IDs, a bitmap is only read or modified under its user's lock
+    private final ConcurrentHashMap<Long, Roaring64Bitmap> readSets = new ConcurrentHashMap<>();
+
+    private volatile boolean ready = false;
+
+    // Striped by user ID, orders the marks of a user and guards the user's bitmap
+    private final Lock[] userLocks = IntStream.range(0, USER_LOCK_STRIPES)
+            .mapToObj(i -> new ReentrantLock())
+            .toArray(Lock[]::new);
+    // Read side: any change (recorded while a rebuild runs). Write side: starting a rebuild and swapping its maps in
+    private final ReentrantReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    // Changes applied during a rebuild, replayed onto the loaded maps; null when no rebuild is running
+    private Queue<BiConsumer<Map<Long, Book>, Map<Long, Roaring64Bitmap>>> pendingChanges;
+
+    /**
+     * Rebuilds the index from the database once the application has started.
+     * Read marks are streamed as ID pairs so no User or Book entity is loaded per row.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.nanoTime();
+        ready = false;
+        // Record changes before the first query, so a change either is committed before it or gets replayed
+        rebuildLock.writeLock().lock();
+        try {
+            pendingChanges = new ConcurrentLinkedQueue<>();
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+
+        Map<Long, Book> loadedBooks = new TreeMap<>();
+        Map<Long, Roaring64Bitmap> loaded = new HashMap<>();
+        try {
+            for(Book book : bookRepository.findAll()) {
+                loadedBooks.put(book.getID(), book);
+            }
+
+            try(Stream<Object[]> marks = userBookRepository.streamAllReadMarks()) {
+                marks.forEach(mark -> loaded
+                        .computeIfAbsent((Long) mark[0], id -> new Roaring64Bitmap())
+                        .addLong((Long) mark[1]));
+            }
+        } catch(RuntimeException e) {
+            // Stop recording, the current maps stay in use
+            rebuildLock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                rebuildLock.writeLock().unlock();
+            }
+            throw e;
+        }
+        loaded.values().forEach(Roaring64Bitmap::runOptimize);
+
+        rebuildLock.writeLock().lock();
+        try {
+            pendingChanges.forEach(change -> change.accept(loadedBooks, loaded));
+            pendingChanges = null;
+
+            catalog.clear();
+            catalog.putAll(loadedBooks);
+            catalogSize.set(loadedBooks.size());
+            readSets.clear();
+            readSets.putAll(loaded);
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+        ready = true;
+
+        log.info("Read-state index rebuilt in {} ms: {} books, {} users, {} bytes",
+                (System.nanoTime() - start) / 1_000_000, catalogSize.get(), readSets.size(), totalSizeInBytes());
+    }
+
+    /**
+     * @return true once the index has been loaded and can answer queries
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Registers a newly added book. It is unread for every user, so no bitmap changes.
+     * @param book the saved book
+     */
+    public void onBookAdded(Book book) {
+        rebuildLock.readLock().lock();
+        try {
+            record((books, sets) -> books.put(book.getID(), book));
+            if(catalog.put(book.getID(), book) == null) {
+                catalogSize.incrementAndGet();
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a deleted book from the catalog and from every user's read set
+     * (mirrors the ON DELETE CASCADE on user_books).
+     * @param bookId ID of the deleted book
+     */
+    public void onBookDeleted(long bookId) {
+        rebuildLock.readLock().lock();
+        try {
+            record((books, sets) -> {
+                books.remove(bookId);
+                sets.keySet().forEach(userId -> applyMark(sets, userId, bookId, false));
+            });
+            if(catalog.remove(bookId) != null) {
+                catalogSize.decrementAndGet();
+            }
+            for(Long userId : readSets.keySet()) {
+                Lock lock = lockFor(userId);
+                lock.lock();
+                try {
+                    applyMark(readSets, userId, bookId, false);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes a read or unread mark and applies it to the index, in one critical section per user:
+     * two concurrent marks of the same user and book are applied in the order their writes committed.
+     * @param userId the user
+     * @param bookId the book
+     * @param read true = read, false = unread
+     * @param write the database write, committed when it returns
+     */
+    public void mark(long userId, long bookId, boolean read, Runnable write) {
+        // Held across the write: a rebuild starting meanwhile either sees the committed row or gets the change replayed
+        rebuildLock.readLock().lock();
+        try {
+            Lock lock = lockFor(userId);
+            lock.lock();
+            try {
+                write.run();
+                record((books, sets) -> applyMark(sets, userId, bookId, read));
+                applyMark(readSets, userId, bookId, read);
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Applies a read or unread mark to a user -> read set map, modifying the user's bitmap in place.
+     * On the live map the caller holds the user's lock.
+     */
+    private static void applyMark(Map<Long, Roaring64Bitmap> sets, long userId, long bookId, boolean read) {
+        if(read) {
+            sets.computeIfAbsent(userId, id -> new Roaring64Bitmap()).addLong(bookId);
+            return;
+        }
+        Roaring64Bitmap bitmap = sets.get(userId);
+        if(bitmap != null) {
+            bitmap.removeLong(bookId);
+            if(bitmap.getLongCardinality() == 0) {
+                sets.remove(userId); // Users without read marks take no memory
+            }
+        }
+    }
+
+    /**
+     * @param userId the user
+     * @return the books the user has marked as read, ordered by ID
+     */
+    public List<Book> getReadBooks(long userId) {
+        List<Book> books = new ArrayList<>();
+        Lock lock = lockFor(userId);
+        lock.lock();
+        try {
+            Roaring64Bitmap bitmap = readSets.get(userId);
+            if(bitmap == null) {
+                return books;
+            }
+            bitmap.forEach(bookId -> {
+                Book book = catalog.get(bookId);
+                if(book != null) {
+                    books.add(book);
+                }
+            });
+        } finally {
+            lock.unlock();
+        }
+        return books;
+    }
+
+    /**
+     * @param userId the user
+     * @return the books the user has not marked as read, ordered by ID
+     */
+    public List<Book> getUnreadBooks(long userId) {
+        List<Book> books = new ArrayList<>();
+        Lock lock = lockFor(userId);
+        lock.lock();
+        try {
+            Roaring64Bitmap bitmap = readSets.get(userId);
+            for(Book book : catalog.values()) {
+                if(bitmap == null || !bitmap.contains(book.getID())) {
+                    books.add(book);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return books;
+    }
+
+    /**
+     * Unread count in O(1): catalog size minus the cardinality of the user's read set.
+     * @param userId the user
+     * @return number of unread books
+     */
+    public long getUnreadCount(long userId) {
+        long read = withBitmap(userId, Roaring64Bitmap::getLongCardinality);
+        return Math.max(0, catalogSize.get() - read);
+    }
+
+    /**
+     * @param userId the user
+     * @return the heap size of the user's read bitmap in bytes (0 for users without read marks)
+     */
+    public long getSizeInBytes(long userId) {
+        return withBitmap(userId, Roaring64Bitmap::getLongSizeInBytes);
+    }
+
+    /**
+     * Memory report used to size heaps: user count, total, average and maximum bitmap size.
+     * @return the statistics as a JSON friendly map
+     */
+    public Map<String, Object> getStats() {
+        long total = 0;
+        long max = 0;
+        for(Long userId : readSets.keySet()) {
+            long size = getSizeInBytes(userId);
+            total += size;
+            max = Math.max(max, size);
+        }
+        int users = readSets.size();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", ready);
+        stats.put("books", catalogSize.get());
+        stats.put("usersWithReadMarks", users);
+        stats.put("totalBitmapBytes", total);
+        stats.put("avgBytesPerUser", users == 0 ? 0 : total / users);
+        stats.put("maxBytesPerUser", max);
+        return stats;
+    }
+
+    /**
+     * Remembers a change for the running rebuild, if any. Must hold the read side of rebuildLock.
+     */
+    private void record(BiConsumer<Map<Long, Book>, Map<Long, Roaring64Bitmap>> change) {
+        if(pendingChanges != null) {
+            pendingChanges.add(change);
+        }
+    }
+
+    private long totalSizeInBytes() {
+        return readSets.keySet().stream().mapToLong(this::getSizeInBytes).sum();
+    }
+
+    /**
+     * Reads a value from a user's bitmap under the user's lock.
+     * @return the value, 0 for users without read marks
+     */
+    private long withBitmap(long userId, ToLongFunction<Roaring64Bitmap> reader) {
+        Lock lock = lockFor(userId);
+        lock.lock();
+        try {
+            Roaring64Bitmap bitmap = readSets.get(userId);
+            return bitmap == null ? 0 : reader.applyAsLong(bitmap);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Lock lockFor(long userId) {
+        return userLocks[Math.floorMod(Long.hashCode(userId), userLocks.length)];
+    }
+}
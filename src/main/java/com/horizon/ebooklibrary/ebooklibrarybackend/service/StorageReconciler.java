@@ -0,0 +1,418 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.service;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.dto.ReconcileReport;
+import com.horizon.ebooklibrary.ebooklibrarybackend.dto.ScrubReport;
+import com.horizon.ebooklibrary.ebooklibrarybackend.repository.BookRepository;
+import com.horizon.ebooklibrary.ebooklibrarybackend.storage.StorageBackend;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.NoSuchFileException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the stored files in line with the books table and checks their integrity.
+ * <p>
+ * Reconcile: the referenced file names are streamed from BookRepository, then the storage backend is listed
+ * (as a stream, never fully in memory). Unreferenced files older than the grace period (an upload may still be
+ * waiting for its book) are moved to the quarantine namespace by UploadService.quarantineIfUnused, which re-reads
+ * the file and its references under the upload lock, since a duplicate upload refreshes lastModified after the
+ * listing. A quarantined file referenced again is moved back, one still unreferenced after the quarantine period
+ * is deleted with its thumbnails and ETag sidecar.
+ * Uploads interrupted before their commit are removed once older than the grace period.
+ * <p>
+ * Scrub: every content-addressed file is re-read and its SHA-256 compared with its name, by scrub.parallelism
+ * workers sharing an I/O budget of max-bytes-per-second. Corrupt files are reported and counted, not removed,
+ * since books still reference them.
+ * <p>
+ * Both run in the background (one pass at a time each) on their own schedule or from the admin endpoints.
+ * Metrics: storage.reconcile.files{action=quarantined|restored|deleted}, storage.reconcile.reclaimed (bytes),
+ * storage.scrub.bytes and storage.scrub.corrupt.
+ */
+@SuppressWarnings("unused")
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StorageReconciler {
+
+    // "<sha256 hex>.<ext>", the name is the expected digest
+    private static final Pattern CONTENT_ADDRESSED_NAME = Pattern.compile("[0-9a-f]{64}\\.[a-z0-9]+");
+
+    private static final int SCRUB_BUFFER_SIZE = 1024 * 1024;
+
+    private final StorageBackend storageBackend;
+    private final UploadService uploadService;
+    private final BookRepository bookRepository;
+    private final FileETagStore fileETagStore;
+    private final ThumbnailService thumbnailService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${upload.url-prefix}")
+    private String urlPrefix;
+
+    // Files younger than this are never orphans: FileUploadController stores a PDF before its book is created
+    @Value("${files.reconcile.grace-period-hours:24}")
+    private long gracePeriodHours;
+
+    @Value("${files.reconcile.quarantine-hours:168}")
+    private long quarantineHours;
+
+    @Value("${files.scrub.parallelism:2}")
+    private int scrubParallelism;
+
+    @Value("${files.scrub.max-bytes-per-second:20971520}")
+    private long scrubMaxBytesPerSecond;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private final AtomicBoolean reconcileRunning = new AtomicBoolean();
+    private final AtomicBoolean scrubRunning = new AtomicBoolean();
+    private final AtomicReference<ReconcileReport> lastReconcile = new AtomicReference<>();
+    private final AtomicReference<ScrubReport> lastScrub = new AtomicReference<>();
+
+    private Counter quarantinedCounter;
+    private Counter restoredCounter;
+    private Counter deletedCounter;
+    private Counter reclaimedBytes;
+    private Counter scrubbedBytes;
+    private Counter corruptCounter;
+
+    /**
+     * A background pass, may be interrupted.
+     */
+    private interface Pass {
+        void run() throws IOException, InterruptedException;
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        quarantinedCounter = fileCounter("quarantined");
+        restoredCounter = fileCounter("restored");
+        deletedCounter = fileCounter("deleted");
+        reclaimedBytes = Counter.builder("storage.reconcile.reclaimed")
+                .description("Bytes freed by deleting orphaned and temporary files")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        scrubbedBytes = Counter.builder("storage.scrub.bytes")
+                .description("Bytes re-read to verify stored checksums")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        corruptCounter = Counter.builder("storage.scrub.corrupt")
+                .description("Stored files whose content doesn't match their checksum")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${files.reconcile.initial-delay-ms:600000}",
+            fixedDelayString = "${files.reconcile.interval-ms:21600000}")
+    public void scheduledReconcile() {
+        startReconcile();
+    }
+
+    @Scheduled(initialDelayString = "${files.scrub.initial-delay-ms:3600000}",
+            fixedDelayString = "${files.scrub.interval-ms:604800000}")
+    public void scheduledScrub() {
+        startScrub();
+    }
+
+    /**
+     * Starts a reconcile pass in the background.
+     * @return false if one is already running
+     */
+    public boolean startReconcile() {
+        return start(reconcileRunning, "storage-reconcile", () -> {
+            ReconcileReport report = reconcile();
+            lastReconcile.set(report);
+            log.info("Storage reconcile: {} file(s) scanned, {} quarantined, {} restored, {} deleted ({} bytes reclaimed)",
+                    report.getFilesScanned(), report.getOrphansQuarantined(), report.getFilesRestored(),
+                    report.getFilesDeleted(), report.getBytesReclaimed());
+        });
+    }
+
+    /**
+     * Starts a checksum scrub in the background.
+     * @return false if one is already running
+     */
+    public boolean startScrub() {
+        return start(scrubRunning, "storage-scrub", () -> {
+            ScrubReport report = scrub();
+            lastScrub.set(report);
+            if(report.getCorruptFiles().isEmpty()) {
+                log.info("Storage scrub: {} file(s) verified ({} bytes), no corruption",
+                        report.getFilesVerified(), report.getBytesVerified());
+            } else {
+                log.error("Storage scrub: {} file(s) verified, {} corrupt: {}",
+                        report.getFilesVerified(), report.getCorruptFiles().size(), report.getCorruptFiles());
+            }
+        });
+    }
+
+    /**
+     * @return the report of the last finished reconcile pass, null if none finished yet
+     */
+    public ReconcileReport getLastReconcile() {
+        return lastReconcile.get();
+    }
+
+    /**
+     * @return the report of the last finished scrub, null if none finished yet
+     */
+    public ScrubReport getLastScrub() {
+        return lastScrub.get();
+    }
+
+    private boolean start(AtomicBoolean running, String name, Pass pass) {
+        if(!running.compareAndSet(false, true)) {
+            return false;
+        }
+
+        Runnable task = () -> {
+            try {
+                pass.run();
+            } catch(IOException | UncheckedIOException e) {
+                log.error("{} failed", name, e);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.set(false);
+            }
+        };
+        if(virtualThreads) {
+            Thread.ofVirtual().name(name).start(task);
+        } else {
+            Thread.ofPlatform().name(name).daemon(true).start(task);
+        }
+        return true;
+    }
+
+    private ReconcileReport reconcile() throws IOException {
+        Instant startedAt = Instant.now();
+        Set<String> referenced = loadReferencedFilenames();
+        Instant graceCutoff = startedAt.minus(Duration.ofHours(gracePeriodHours));
+
+        long scanned = 0;
+        long quarantined = 0;
+        long restored = 0;
+        long deleted = 0;
+        long bytes = 0;
+
+        // Stored files: quarantine orphans
+        try(Stream<StorageBackend.StoredObject> files = storageBackend.list("")) {
+            Iterator<StorageBackend.StoredObject> iterator = files.iterator();
+            while(iterator.hasNext()) {
+                StorageBackend.StoredObject file = iterator.next();
+                scanned++;
+                String name = file.key();
+                try {
+                    if(file.lastModified().isAfter(graceCutoff) || referenced.contains(name)) {
+                        continue;
+                    }
+                    // Re-checked under the upload lock: a book created or a duplicate uploaded since the listing
+                    // keeps the file
+                    if(uploadService.quarantineIfUnused(name)) {
+                        quarantined++;
+                        log.info("Quarantined orphaned file '{}'", name);
+                    }
+                } catch(NoSuchFileException e) {
+                    // Removed or quarantined concurrently (another instance or the file reclaimer)
+                }
+            }
+        }
+
+        // Quarantine: restore what is referenced again, delete what stayed unreferenced for the whole period
+        Instant expiry = startedAt.minus(Duration.ofHours(quarantineHours));
+        try(Stream<StorageBackend.StoredObject> files = storageBackend.list(StorageBackend.QUARANTINE)) {
+            Iterator<StorageBackend.StoredObject> iterator = files.iterator();
+            while(iterator.hasNext()) {
+                StorageBackend.StoredObject file = iterator.next();
+                String name = file.key().substring(file.key().indexOf('/') + 1);
+                try {
+                    if(referenced.contains(name) || isReferenced(name)) {
+                        if(storageBackend.stat(name) != null) {
+                            storageBackend.delete(file.key()); // Uploaded again meanwhile, same name means same content
+                        } else {
+                            storageBackend.move(file.key(), name);
+                        }
+                        restored++;
+                        log.info("Restored quarantined file '{}', it is referenced again", name);
+                    } else if(file.lastModified().isBefore(expiry)) {
+                        storageBackend.delete(file.key());
+                        fileETagStore.remove(name);
+                        thumbnailService.deleteVariants(name);
+                        deleted++;
+                        bytes += file.size();
+                        log.info("Deleted orphaned file '{}' after quarantine", name);
+                    }
+                } catch(NoSuchFileException e) {
+                    // Handled concurrently by another instance
+                }
+            }
+        }
+
+        // Uploads that were never committed (crash, aborted request)
+        bytes += storageBackend.deleteAbandonedUploads(graceCutoff);
+
+        quarantinedCounter.increment(quarantined);
+        restoredCounter.increment(restored);
+        deletedCounter.increment(deleted);
+        reclaimedBytes.increment(bytes);
+        return new ReconcileReport(startedAt, Duration.between(startedAt, Instant.now()).toMillis(),
+                scanned, quarantined, restored, deleted, bytes);
+    }
+
+    private ScrubReport scrub() throws IOException, InterruptedException {
+        Instant startedAt = Instant.now();
+        IoRateLimiter rateLimiter = new IoRateLimiter(scrubMaxBytesPerSecond);
+        AtomicLong verified = new AtomicLong();
+        AtomicLong bytes = new AtomicLong();
+        ConcurrentLinkedQueue<String> corrupt = new ConcurrentLinkedQueue<>();
+
+        ExecutorService workers = Executors.newFixedThreadPool(scrubParallelism, virtualThreads
+                ? Thread.ofVirtual().name("storage-scrub-", 0).factory()
+                : Thread.ofPlatform().name("storage-scrub-", 0).daemon(true).factory());
+        // Bounds the files handed out ahead of the workers, so the listing is consumed as a stream
+        Semaphore slots = new Semaphore(scrubParallelism * 2);
+        try(Stream<StorageBackend.StoredObject> files = storageBackend.list("")) {
+            Iterator<String> names = files.map(StorageBackend.StoredObject::key)
+                    .filter(name -> CONTENT_ADDRESSED_NAME.matcher(name).matches())
+                    .iterator();
+            while(names.hasNext()) {
+                String name = names.next();
+                slots.acquire();
+                workers.execute(() -> {
+                    try {
+                        long size = verify(name, rateLimiter, corrupt);
+                        verified.incrementAndGet();
+                        bytes.addAndGet(size);
+                        scrubbedBytes.increment(size);
+                    } catch(NoSuchFileException e) {
+                        // Deleted or quarantined since the listing
+                    } catch(IOException e) {
+                        log.warn("Could not verify '{}': {}", name, e.getMessage());
+                    } catch(InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        slots.release();
+                    }
+                });
+            }
+        } finally {
+            workers.shutdown();
+        }
+        if(!workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS)) {
+            workers.shutdownNow();
+        }
+
+        return new ScrubReport(startedAt, Duration.between(startedAt, Instant.now()).toMillis(),
+                verified.get(), bytes.get(), new ArrayList<>(corrupt));
+    }
+
+    /**
+     * Re-reads a content-addressed file and compares its SHA-256 with its name.
+     * @return the number of bytes read
+     */
+    private long verify(String name, IoRateLimiter rateLimiter, ConcurrentLinkedQueue<String> corrupt)
+            throws IOException, InterruptedException {
+        MessageDigest digest = FileETagStore.newDigest();
+        byte[] buffer = new byte[SCRUB_BUFFER_SIZE];
+        long size = 0;
+        try(InputStream in = storageBackend.open(name)) {
+            int read;
+            while((read = in.read(buffer)) > 0) {
+                rateLimiter.acquire(read);
+                digest.update(buffer, 0, read);
+                size += read;
+            }
+        }
+
+        if(!HexFormat.of().formatHex(digest.digest()).equals(name.substring(0, name.indexOf('.')))) {
+            corrupt.add(name);
+            corruptCounter.increment();
+            log.error("Stored file '{}' is corrupt: its content doesn't match its SHA-256", name);
+        }
+        return size;
+    }
+
+    /**
+     * Loads the names of all files referenced by a book, streamed from the database.
+     */
+    private Set<String> loadReferencedFilenames() {
+        Set<String> referenced = new HashSet<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            try(Stream<String> urls = bookRepository.streamFileUrls()) {
+                urls.map(StorageReconciler::filenameOf).forEach(referenced::add);
+            }
+        });
+        return referenced;
+    }
+
+    private boolean isReferenced(String filename) {
+        String url = urlPrefix + filename;
+        return bookRepository.countByCoverUrlOrPdfUrl(url, url) > 0;
+    }
+
+    private static String filenameOf(String url) {
+        return url.substring(url.lastIndexOf('/') + 1);
+    }
+
+    private Counter fileCounter(String action) {
+        return Counter.builder("storage.reconcile.files")
+                .tag("action", action)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Byte budget shared by the scrub workers: each read reserves its bytes and waits until the budget allows them.
+     */
+    private static final class IoRateLimiter {
+        private final double nanosPerByte;
+        private long nextFreeNanos = System.nanoTime();
+
+        private IoRateLimiter(long bytesPerSecond) {
+            this.nanosPerByte = (double) TimeUnit.SECONDS.toNanos(1) / bytesPerSecond;
+        }
+
+        private void acquire(int bytes) throws InterruptedException {
+            long waitNanos;
+            synchronized(this) {
+                long now = System.nanoTime();
+                long start = Math.max(now, nextFreeNanos);
+                nextFreeNanos = start + (long) (bytes * nanosPerByte);
+                waitNanos = start - now;
+            }
+            if(waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.service;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.storage.StorageBackend;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Produces downscaled variants of uploaded cover images in the background.
+ * <p>
+ * Covers are uploaded at full size (several MB), while the Android list view only renders small tiles.
+ * After an image is stored, one variant per configured width (128/256/512 px by default) is written
+ * to the thumbnails namespace of the storage backend as "thumbs/{name}-w{width}.{ext}".
+ * GET /files/{name}?w=256 then serves the closest variant, or the original until the variants exist.
+ * <p>
+ * Work runs on a small bounded pool: at most queue-capacity images wait at any time,
+ * uploads that don't fit are skipped and picked up by the next backfill.
+ */
+@SuppressWarnings("unused")
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ThumbnailService {
+
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final StorageBackend storageBackend;
+
+    @Value("${thumbnails.widths:128,256,512}")
+    private List<Integer> widths;
+
+    @Value("${thumbnails.pool-size:2}")
+    private int poolSize;
+
+    @Value("${thumbnails.queue-capacity:100}")
+    private int queueCapacity;
+
+    // The backfill only walks the directory and waits for free slots, it follows the virtual-thread mode.
+    // Scaling itself is CPU-bound and always runs on the capped platform pool.
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private ThreadPoolExecutor executor;
+    // Bounds the images waiting or in progress, the executor queue itself is never allowed to grow past it
+    private Semaphore slots;
+    // Images currently queued, so the same cover isn't processed twice at once
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+
+    @PostConstruct
+    public void start() {
+        widths = widths.stream().sorted().distinct().toList();
+        slots = new Semaphore(queueCapacity);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnail-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY); // Never compete with request threads
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues the generation of the variants of a freshly stored image.
+     * Never blocks the caller: if the queue is full the image is left to the next backfill.
+     * @param filename the stored filename of the image
+     */
+    public void submit(String filename) {
+        if(!isImage(filename)) {
+            return;
+        }
+        if(!slots.tryAcquire()) {
+            log.warn("Thumbnail queue full, '{}' will be processed by the next backfill", filename);
+            return;
+        }
+        enqueue(filename);
+    }
+
+    /**
+     * Starts a background pass over the upload directory that queues every image missing one of its variants.
+     * @return false if a backfill is already running
+     */
+    public boolean startBackfill() {
+        if(!backfillRunning.compareAndSet(false, true)) {
+            return false;
+        }
+
+        Runnable task = () -> {
+            try {
+                int queued = backfill();
+                log.info("Thumbnail backfill queued {} image(s)", queued);
+            } catch(IOException e) {
+                log.error("Thumbnail backfill failed", e);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                backfillRunning.set(false);
+            }
+        };
+        if(virtualThreads) {
+            Thread.ofVirtual().name("thumbnail-backfill").start(task);
+        } else {
+            Thread.ofPlatform().name("thumbnail-backfill").daemon(true).start(task);
+        }
+        return true;
+    }
+
+    /**
+     * @return true while a backfill pass is queueing images
+     */
+    public boolean isBackfillRunning() {
+        return backfillRunning.get();
+    }
+
+    /**
+     * Picks the variant to serve for a requested width: the smallest variant at least that wide,
+     * or the largest one if the request is wider than all of them.
+     * @param filename the stored filename of the original image
+     * @param requestedWidth the width the client asked for
+     * @return the key of the variant (it may not be generated yet), or null if the file has no variants
+     */
+    public String variantKey(String filename, int requestedWidth) {
+        if(!isImage(filename) || requestedWidth <= 0) {
+            return null;
+        }
+
+        int width = widths.get(widths.size() - 1);
+        for(int candidate : widths) {
+            if(candidate >= requestedWidth) {
+                width = candidate;
+                break;
+            }
+        }
+        return variantKeyOf(filename, width);
+    }
+
+    /**
+     * Deletes all variants of an image, called when the original is deleted.
+     * @param filename the stored filename of the image
+     * @throws IOException if a variant can't be removed
+     */
+    public void deleteVariants(String filename) throws IOException {
+        if(!isImage(filename)) {
+            return;
+        }
+        for(int width : widths) {
+            storageBackend.delete(variantKeyOf(filename, width));
+        }
+    }
+
+    /**
+     * Lists the stored files and queues every image that misses a variant as the listing is consumed.
+     * Blocks while the queue is full, so the listing is never held in memory.
+     */
+    private int backfill() throws IOException, InterruptedException {
+        int queued = 0;
+        try(Stream<StorageBackend.StoredObject> files = storageBackend.list("")) {
+            Iterator<StorageBackend.StoredObject> iterator = files.iterator();
+            while(iterator.hasNext()) {
+                String name = iterator.next().key();
+                if(!isImage(name) || !missesVariant(name)) {
+                    continue;
+                }
+                slots.acquire();
+                if(enqueue(name)) {
+                    queued++;
+                }
+            }
+        }
+        return queued;
+    }
+
+    /**
+     * Hands an image to the pool. The caller must hold a slot, it is released once the image is done.
+     */
+    private boolean enqueue(String filename) {
+        if(!pending.add(filename)) {
+            slots.release(); // Already queued
+            return false;
+        }
+
+        executor.execute(() -> {
+            try {
+                generateVariants(filename);
+            } catch(Exception e) {
+                log.error("Failed to generate thumbnails for '{}'", filename, e);
+            } finally {
+                pending.remove(filename);
+                slots.release();
+            }
+        });
+        return true;
+    }
+
+    private boolean missesVariant(String filename) throws IOException {
+        for(int width : widths) {
+            if(storageBackend.stat(variantKeyOf(filename, width)) == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Decodes the original once and writes every missing variant.
+     * Large originals are subsampled while decoding, so a 9 MB cover is never fully expanded in memory.
+     * Variants are written as storage uploads and committed once complete, so a half-written variant is never served.
+     */
+    private void generateVariants(String filename) throws IOException {
+        if(storageBackend.stat(filename) == null || !missesVariant(filename)) {
+            return;
+        }
+
+        BufferedImage source;
+        try(InputStream in = storageBackend.open(filename)) {
+            source = read(in, widths.get(widths.size() - 1));
+        }
+        if(source == null) {
+            log.warn("'{}' is not a readable image, no thumbnails generated", filename);
+            return;
+        }
+
+        String format = extensionOf(filename).equals("png") ? "png" : "jpg";
+
+        for(int width : widths) {
+            String key = variantKeyOf(filename, width);
+            if(storageBackend.stat(key) != null) {
+                continue;
+            }
+
+            // Never upscale: a variant wider than the original is just the original re-encoded
+            BufferedImage scaled = scale(source, Math.min(width, source.getWidth()), format.equals("png"));
+            try(StorageBackend.Upload upload = storageBackend.newUpload()) {
+                try(OutputStream out = upload.stream()) {
+                    write(scaled, format, out);
+                }
+                upload.commit(key);
+            }
+        }
+        log.info("Generated thumbnails for '{}'", filename);
+    }
+
+    /**
+     * Decodes an image, skipping pixels when the original is far wider than the largest variant.
+     * @return the decoded image, or null if no reader supports the file
+     */
+    private static BufferedImage read(InputStream source, int maxWidth) throws IOException {
+        try(ImageInputStream in = ImageIO.createImageInputStream(source)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if(!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                // Keep at least twice the largest variant width so the final downscale stays smooth
+                int subsampling = Math.max(1, reader.getWidth(0) / (2 * maxWidth));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Downscales to the target width (keeping the aspect ratio), halving the size in steps
+     * so bilinear filtering doesn't alias like a single large reduction would.
+     */
+    private static BufferedImage scale(BufferedImage source, int targetWidth, boolean keepAlpha) {
+        int type = keepAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        int targetHeight = Math.max(1, (int) Math.round((double) source.getHeight() * targetWidth / source.getWidth()));
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+
+            BufferedImage step = new BufferedImage(width, height, type);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        } while(width != targetWidth || height != targetHeight);
+
+        return current;
+    }
+
+    private static void write(BufferedImage image, String format, OutputStream target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        try(ImageOutputStream out = ImageIO.createImageOutputStream(target)) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if(format.equals("jpg")) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static String variantKeyOf(String filename, int width) {
+        int dot = filename.lastIndexOf('.');
+        String extension = extensionOf(filename).equals("png") ? ".png" : ".jpg";
+        return StorageBackend.THUMBNAILS + "/" + filename.substring(0, dot) + "-w" + width + extension;
+    }
+
+    private static boolean isImage(String filename) {
+        String extension = extensionOf(filename);
+        return extension.equals("jpg") || extension.equals("jpeg") || extension.equals("png");
+    }
+
+    private static String extensionOf(String filename) {
+        int dot = filename.lastIndexOf('.');
+        return dot < 0 ? "" : filename.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+}
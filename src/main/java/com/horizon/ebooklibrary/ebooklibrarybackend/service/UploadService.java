@@ -1,75 +1,118 @@
 package com.horizon.ebooklibrary.ebooklibrarybackend.service;
 
+import com.horizon.ebooklibrary.ebooklibrarybackend.repository.BookRepository;
+import com.horizon.ebooklibrary.ebooklibrarybackend.storage.StorageBackend;
+
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Paths;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * Service responsible for handling file uploads.
- * It saves files to the local filesystem and returns their public URL.
+ * It saves files to the storage backend (local fan-out directories or S3) and returns their public URL.
+ * <p>
+ * Storage is content-addressed: every file is stored as "{sha256}.{ext}",
+ * so uploading the same PDF or cover twice stores the bytes only once.
+ * The reference count of a file is the number of books pointing to its URL,
+ * and a file is only deleted once no book references it anymore.
+ * <p>
+ * A book is created in a separate request after its files were uploaded, so a file without references may be
+ * about to get one. deleteFile therefore keeps files uploaded (or re-uploaded, which refreshes lastModified)
+ * within the grace period and leaves them to the StorageReconciler. Commits and deletions of the same file
+ * take the same lock, so a delete can't remove a file between a duplicate upload's hit and its refresh.
+ * <p>
+ * Metrics: uploads.write (duration) and uploads.bytes, tagged with kind=pdf|image
+ * and outcome=stored|deduplicated|failed.
  */
 @SuppressWarnings("unused")
+@Slf4j
 @Service
+@RequiredArgsConstructor
 public class UploadService {
 
-    // Base folder where uploaded files will be stored (defined in application.properties)
-    @Value("${upload.dir}")
-    private String uploadDir;
+    // Content-addressed names ("<64 hex digits>.ext"), the name changes whenever the content does
+    private static final Pattern CONTENT_ADDRESSED_NAME = Pattern.compile("[0-9a-f]{64}\\.[a-z0-9]+");
+    // Legacy names from the timestamp naming scheme ("name_1712345678901.ext"), also never overwritten
+    private static final Pattern TIMESTAMPED_NAME = Pattern.compile(".+_\\d{13}\\.[A-Za-z0-9]+");
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final int FILE_LOCK_STRIPES = 64;
+
+    private final StorageBackend storageBackend;
+    private final FileETagStore fileETagStore;
+    private final BookRepository bookRepository;
+    private final ThumbnailService thumbnailService;
+    private final MeterRegistry meterRegistry;
 
     // Base URL prefix for serving files
     @Value("${upload.url-prefix}")
     private String urlPrefix;
 
+    // Same grace period as the reconciler: a younger file may still be waiting for its book
+    @Value("${files.reconcile.grace-period-hours:24}")
+    private long gracePeriodHours;
+
+    // Striped by filename, serializes the commit of a file with its deletion
+    private final Lock[] fileLocks = IntStream.range(0, FILE_LOCK_STRIPES)
+            .mapToObj(i -> new ReentrantLock())
+            .toArray(Lock[]::new);
+
 
     /*
-     * The following savePdf and saveImage methods, generate a unique name for uploaded files with timestamps.
-     * The reason this is necessary is that saving into the system different files with the same name might result in overrides.
-     * Therefore, a unique naming convention is necessary and saving according to timestamp is one possible way to integrate this that seemed most reasonable at the time.
+     * The following savePdf and saveImage methods name uploaded files after the SHA-256 of their content.
+     * Saving different files with the same original name can't override each other,
+     * and identical files (e.g. the same cover uploaded twice) end up as a single blob on disk.
      */
 
     /**
-     * Saves a PDF file to the upload directory with a unique timestamped filename.
+     * Saves a PDF file to the upload directory under its content hash.
      * @param file The uploaded PDF file
      * @return public URL to the stored file
      * @throws IOException if saving fails
      */
     public String savePdf(MultipartFile file) throws IOException {
-        ensureUploadDirExists();
-
         // Validate filename and extension
         String originalFilename = file.getOriginalFilename();
         if (originalFilename == null || !originalFilename.toLowerCase().endsWith(".pdf")) {
             throw new IllegalArgumentException("Only PDF files are supported.");
         }
 
-        // Get a unique time stamp file name
-        String uniqueFilename = generateTimeStampedFilename(originalFilename);
-
-        // Save the file to disk
-        Path filePath = getUploadPath().resolve(uniqueFilename);
-        file.transferTo(filePath.toFile());
-
-        // Return public URL to access the file
-        return urlPrefix + uniqueFilename;
+        // Save the file to disk and return public URL to access the file
+        try(InputStream in = file.getInputStream()) {
+            return urlPrefix + storeContentAddressed(in, ".pdf", Long.MAX_VALUE);
+        }
     }
 
     /**
-     * Saves an image file (JPG, PNG) with a unique timestamped filename.
+     * Saves an image file (JPG, PNG) under its content hash.
      * @param file The uploaded image file
      * @return public URL to the stored file
      * @throws IOException if saving fails
      */
     public String saveImage(MultipartFile file) throws IOException {
-        ensureUploadDirExists();
-
         // Validate filename and extension
         String originalFilename = file.getOriginalFilename();
         if (originalFilename == null ||
@@ -79,67 +122,210 @@ public class UploadService {
             throw new IllegalArgumentException("Only JPG and PNG images are supported.");
         }
 
-        // Get a unique time stamp file name
-        String uniqueFilename = generateTimeStampedFilename(originalFilename);
-
-        // Save the file
-        Path filePath = getUploadPath().resolve(uniqueFilename);
-        file.transferTo(filePath.toFile());
+        // Save the file, queue its downscaled variants (list tiles) and return public URL
+        String filename;
+        try(InputStream in = file.getInputStream()) {
+            filename = storeContentAddressed(in, imageExtension(originalFilename), Long.MAX_VALUE);
+        }
+        thumbnailService.submit(filename);
+        return urlPrefix + filename;
+    }
 
-        // Return public URL
-        return urlPrefix + uniqueFilename;
+    /**
+     * Saves a PDF or an image read from a stream (bulk import), with the same naming and deduplication
+     * as savePdf and saveImage. The stream is read to its end but not closed.
+     * @param in the file content
+     * @param originalFilename the name of the file in the archive, decides the type
+     * @param maxBytes maximum accepted size, larger files are rejected
+     * @return public URL to the stored file
+     * @throws IllegalArgumentException if the type isn't supported or the file is too large
+     * @throws IOException if saving fails
+     */
+    public String saveStream(InputStream in, String originalFilename, long maxBytes) throws IOException {
+        String lowerName = originalFilename.toLowerCase(Locale.ROOT);
+        if(lowerName.endsWith(".pdf")) {
+            return urlPrefix + storeContentAddressed(in, ".pdf", maxBytes);
+        }
+        if(!(lowerName.endsWith(".jpg") || lowerName.endsWith(".jpeg") || lowerName.endsWith(".png"))) {
+            throw new IllegalArgumentException("Only PDF, JPG and PNG files are supported.");
+        }
+        String filename = storeContentAddressed(in, imageExtension(lowerName), maxBytes);
+        thumbnailService.submit(filename);
+        return urlPrefix + filename;
     }
 
     /**
-     * Deletes a file from the upload directory
+     * Deletes a file from the storage backend, unless a book still references it
+     * or it was uploaded within the grace period (the StorageReconciler removes it later if it stays unused).
      * @param fileUrl the public URL of the uploaded file
+     * @return null if nothing is left to do (deleted, missing or still referenced),
+     * or the end of the grace period of a file that was kept because it is recent
      * @throws IOException if deletion fails
      */
-    public void deleteFile(String fileUrl) throws IOException {
-
+    public Instant deleteFile(String fileUrl) throws IOException {
+        String filename;
         try {
             // Parse the file URL to extract the filename
             URI uri = new URI(fileUrl);
-            String filename = Paths.get(uri.getPath()).getFileName().toString();
+            filename = Paths.get(uri.getPath()).getFileName().toString();
+        } catch(URISyntaxException e) {
+            throw new IOException("Invalid file URL: " + fileUrl, e);
+        }
 
-            // Resolve the full path to get the file
-            Path filePath = Paths.get(uploadDir).toAbsolutePath().normalize().resolve(filename).normalize();
+        Lock lock = lockFor(filename);
+        lock.lock();
+        try {
+            // Deduplicated blobs can be shared by several books
+            long references = countReferences(fileUrl);
+            if(references > 0) {
+                log.info("Keeping '{}', still referenced by {} book(s)", fileUrl, references);
+                return null;
+            }
+
+            StorageBackend.StoredObject object = storageBackend.stat(filename);
+            if(object != null && isWithinGracePeriod(object)) {
+                log.info("Keeping '{}', uploaded recently and may be about to be referenced", fileUrl);
+                return object.lastModified().plus(Duration.ofHours(gracePeriodHours));
+            }
 
             // Delete the file if it exists
-            Files.deleteIfExists(filePath);
-        } catch(URISyntaxException e) {
-            throw new IOException("Invalid file URL: " + fileUrl, e);
+            storageBackend.delete(filename);
+            fileETagStore.remove(filename);
+            thumbnailService.deleteVariants(filename);
+            return null;
+        } finally {
+            lock.unlock();
         }
     }
 
     /**
-     * Ensures that the upload directory exists.
-     * Creates it if necessary
+     * Moves a stored file no book references to the quarantine namespace (StorageReconciler).
+     * The decision is taken again under the file's lock, so an upload of the same content can't commit meanwhile:
+     * the listing the reconciler works from may be stale, and a re-upload since then refreshed lastModified.
+     * @param filename the stored file
+     * @return true if it was quarantined, false if it is gone, within the grace period or referenced
+     * @throws IOException if the move fails
      */
-    private void ensureUploadDirExists() throws IOException {
-        Path uploadPath = getUploadPath();
-        if(!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+    public boolean quarantineIfUnused(String filename) throws IOException {
+        Lock lock = lockFor(filename);
+        lock.lock();
+        try {
+            StorageBackend.StoredObject object = storageBackend.stat(filename);
+            if(object == null || isWithinGracePeriod(object) || countReferences(urlPrefix + filename) > 0) {
+                return false;
+            }
+            // The move sets lastModified, which starts the quarantine period
+            storageBackend.move(filename, StorageBackend.QUARANTINE + "/" + filename);
+            return true;
+        } finally {
+            lock.unlock();
         }
     }
 
     /**
-     * @return the full upload path
+     * @param object a stored file
+     * @return true if the file was uploaded (or re-uploaded) too recently to be considered unused
+     */
+    public boolean isWithinGracePeriod(StorageBackend.StoredObject object) {
+        return object.lastModified().isAfter(Instant.now().minus(Duration.ofHours(gracePeriodHours)));
+    }
+
+    /**
+     * Reference count of a stored file: the number of books using it as cover or PDF.
+     * @param fileUrl the public URL of the file
+     * @return the number of referencing books
+     */
+    public long countReferences(String fileUrl) {
+        return bookRepository.countByCoverUrlOrPdfUrl(fileUrl, fileUrl);
+    }
+
+    /**
+     * Files written by this service are named after their content (or, for older uploads, a timestamp)
+     * and are never modified afterward, which makes them safe to cache for a long time.
+     * @param filename the stored filename
+     * @return true if the file is immutable
      */
-    private Path getUploadPath() {
-        return Paths.get(uploadDir).toAbsolutePath().normalize();
+    public boolean isImmutable(String filename) {
+        return CONTENT_ADDRESSED_NAME.matcher(filename).matches() || TIMESTAMPED_NAME.matcher(filename).matches();
     }
 
     /**
-     * Appends a timestamp to the filename to ensure uniqueness.
-     * @param originalFilename original file name from client
-     * @return modified filename with timestamp
+     * Streams the upload to the storage backend while computing its SHA-256 (a single pass over the bytes),
+     * then commits it as "{sha256}{extension}". If an object with that name exists the bytes are identical
+     * and the upload is discarded.
+     * @param in the file content
+     * @param extension the extension to store the file with, including the dot
+     * @param maxBytes maximum accepted size
+     * @return the stored filename
      */
-    private String generateTimeStampedFilename(String originalFilename) {
-        String baseName = originalFilename.substring(0, originalFilename.lastIndexOf(".")); // Saves the name of the file without the type after the '.' .
-        String extension = originalFilename.substring(originalFilename.lastIndexOf(".")); // Saves the type of the file that is after the '.' .
-        long timeStamp = Instant.now().toEpochMilli(); // Get some time reference long number for the java time framework
+    private String storeContentAddressed(InputStream in, String extension, long maxBytes) throws IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failed";
+        long size = 0;
 
-        return baseName + "_" + timeStamp + extension; // Builds the file so it returns "originalFileName_generatedTimeStamp.fileType"
+        try(StorageBackend.Upload upload = storageBackend.newUpload()) {
+            MessageDigest digest = FileETagStore.newDigest();
+            try(OutputStream out = new DigestOutputStream(upload.stream(), digest)) {
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                int read;
+                while((read = in.read(buffer)) > 0) {
+                    size += read;
+                    if(size > maxBytes) {
+                        throw new IllegalArgumentException("File is larger than " + maxBytes + " bytes.");
+                    }
+                    out.write(buffer, 0, read);
+                }
+            }
+            byte[] sha256 = digest.digest();
+
+            // The ETag of a content-addressed file is derived from its name, nothing else to record
+            String filename = HexFormat.of().formatHex(sha256) + extension.toLowerCase(Locale.ROOT);
+            Lock lock = lockFor(filename);
+            lock.lock();
+            try {
+                // A duplicate refreshes the stored file's lastModified, which protects it from deleteFile
+                if(upload.commit(filename)) {
+                    outcome = "stored";
+                } else {
+                    log.info("Upload deduplicated, '{}' already stored", filename);
+                    outcome = "deduplicated";
+                }
+            } finally {
+                lock.unlock();
+            }
+            return filename;
+        } finally {
+            recordWrite(sample, ".pdf".equals(extension) ? "pdf" : "image", outcome, size);
+        }
+    }
+
+    private Lock lockFor(String filename) {
+        return fileLocks[Math.floorMod(filename.hashCode(), fileLocks.length)];
+    }
+
+    /**
+     * ".jpeg" and ".jpg" are the same format, use one extension so identical images share a blob.
+     */
+    private static String imageExtension(String filename) {
+        return filename.toLowerCase(Locale.ROOT).endsWith(".png") ? ".png" : ".jpg";
+    }
+
+    /**
+     * Records the duration and size of an upload (tags are fixed values, never file names).
+     */
+    private void recordWrite(Timer.Sample sample, String kind, String outcome, long bytes) {
+        sample.stop(Timer.builder("uploads.write")
+                .description("Time to hash and store an uploaded file")
+                .tag("kind", kind)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+        DistributionSummary.builder("uploads.bytes")
+                .description("Size of uploaded files")
+                .baseUnit("bytes")
+                .tag("kind", kind)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(bytes);
     }
 }
@@ -0,0 +1,61 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.service;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.User;
+import com.horizon.ebooklibrary.ebooklibrarybackend.repository.UserRepository;
+import com.horizon.ebooklibrary.ebooklibrarybackend.security.AuthenticatedPrincipal;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Resolves the current user from the SecurityContext without parsing the token again or querying the users table.
+ * <p>
+ * Tokens carry the user ID ("uid" claim), so the common case is a field read on the principal set by JwtAuthFilter.
+ * Tokens issued before the claim existed only carry the email: their ID is looked up once and kept in a small cache.
+ * Code that needs a User entity (JPA parameters, UserBook.user) gets a reference proxy, which isn't loaded from the database.
+ */
+@SuppressWarnings("unused")
+@Component
+@RequiredArgsConstructor
+public class UserIdentityCache {
+
+    private final UserRepository userRepository;
+
+    // Email -> user ID, only used for tokens without the "uid" claim
+    private final Cache<String, Long> idsByEmail = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(30))
+            .build();
+
+    /**
+     * @return the ID of the authenticated user of the current request
+     * @throws RuntimeException if the request isn't authenticated with a JWT or the user doesn't exist
+     */
+    public long getCurrentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if(authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedPrincipal principal)) {
+            throw new RuntimeException("Missing or invalid Authorization header");
+        }
+        if(principal.userId() != null) {
+            return principal.userId();
+        }
+
+        return idsByEmail.get(principal.email(), email -> userRepository.findByEmail(email)
+                .map(User::getId)
+                .orElseThrow(() -> new RuntimeException("User not found with email: " + email)));
+    }
+
+    /**
+     * @return a reference to the current user, usable as query parameter or association without loading the row
+     */
+    public User getCurrentUser() {
+        return userRepository.getReferenceById(getCurrentUserId());
+    }
+}
@@ -1,42 +1,35 @@
 package com.horizon.ebooklibrary.ebooklibrarybackend.service;
 
-import com.horizon.ebooklibrary.ebooklibrarybackend.entity.Book;
 import com.horizon.ebooklibrary.ebooklibrarybackend.entity.Role;
 import com.horizon.ebooklibrary.ebooklibrarybackend.entity.User;
-import com.horizon.ebooklibrary.ebooklibrarybackend.entity.UserBook;
-import com.horizon.ebooklibrary.ebooklibrarybackend.repository.BookRepository;
-import com.horizon.ebooklibrary.ebooklibrarybackend.repository.UserBookRepository;
 import com.horizon.ebooklibrary.ebooklibrarybackend.repository.UserRepository;
-import com.horizon.ebooklibrary.ebooklibrarybackend.security.JwtUtils;
 
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * Service class that handles user authentication and registration.
- * Initializes new users with all existing books marked as unread.
+ * New users start with every book unread, which needs no user_books rows.
+ * BCrypt work runs on the bounded PasswordHashingService pool, not on the request thread.
  */
 @SuppressWarnings("unused")
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class UserService {
 
     private final UserRepository userRepository;
-    private final BookRepository bookRepository;
-    private final UserBookRepository userBookRepository;
-    private final PasswordEncoder passwordEncoder;
-    private final JwtUtils jwtUtils;
+    private final PasswordHashingService passwordHashingService;
 
     /**
      * Registers a new user with an encoded password.
-     * By default assigns to the user the 'USER' role and all books as unread.
+     * By default assigns to the user the 'USER' role, all books are implicitly unread.
      * @param user The user to be registered.
+     * @throws PasswordHashingBusyException if the hashing pool is saturated
      */
     public void registerUser(User user) {
         // Assign default role if none is provided
@@ -44,45 +37,36 @@ public class UserService {
             user.setRole(Role.USER);
         }
         // Encrypts the password before saving
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
+        user.setPassword(passwordHashingService.encode(user.getPassword()));
 
         // Save user to database
-        User savedUser = userRepository.save(user);
-
-        // Fetch all existing books
-        List<Book> allBooks = bookRepository.findAll();
-
-        // Create UserBook entries for all books as unread
-        List<UserBook> userBooks = allBooks.stream()
-                .map(book -> UserBook.builder()
-                        .user(savedUser)
-                        .book(book)
-                        .read(false)
-                        .build())
-                .collect(Collectors.toList());
-
-        // Save all UserBook entries in bulk
-        userBookRepository.saveAll(userBooks);
+        userRepository.save(user);
     }
 
     /**
-     * Authenticates a user and returns a JWT token
+     * Authenticates a user by email and password.
+     * Hashes made with a lower BCrypt cost than the configured one are transparently re-hashed in the background.
      * @param email User's email.
      * @param password Raw password provided by the user.
-     * @return JWT token if authentication is successful, otherwise null
+     * @return the user if authentication is successful, otherwise empty
+     * @throws PasswordHashingBusyException if the hashing pool is saturated
      */
-    public String authenticate(String email, String password) {
+    public Optional<User> authenticate(String email, String password) {
         Optional<User> optionalUser = userRepository.findByEmail(email);
 
         if (optionalUser.isPresent()) {
             User user = optionalUser.get();
 
             // Check if the raw password matches the hashed password
-            if (passwordEncoder.matches(password, user.getPassword()))
-                return jwtUtils.generateToken(user); // Generate JWT token
+            if (passwordHashingService.matches(password, user.getPassword())) {
+                if(passwordHashingService.needsUpgrade(user.getPassword())) {
+                    rehash(user, password);
+                }
+                return optionalUser;
+            }
         }
 
-        return null; // Authentication failed
+        return Optional.empty(); // Authentication failed
     }
 
     /**
@@ -94,4 +78,19 @@ public class UserService {
     public Optional<User> findByEmail(String email) {
         return userRepository.findByEmail(email);
     }
+
+    /**
+     * Stores a new hash of the password with the current cost, off the login request.
+     */
+    private void rehash(User user, String password) {
+        Long userId = user.getId();
+        String oldHash = user.getPassword();
+        passwordHashingService.encodeInBackground(password, newHash -> {
+            // Only replace the hash the password was checked against (not a password changed in between)
+            int updated = userRepository.updatePasswordIfUnchanged(userId, oldHash, newHash);
+            if(updated > 0) {
+                log.info("Password hash of user {} upgraded to the current BCrypt cost", userId);
+            }
+        });
+    }
 }
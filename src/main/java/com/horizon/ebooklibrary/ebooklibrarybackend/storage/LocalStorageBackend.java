@@ -0,0 +1,325 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.storage;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.service.FileETagStore;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stores objects in upload.dir, fanned out over two levels of hashed subdirectories:
+ * "{filename}" is stored as "ab/cd/{filename}" where "abcd" starts the SHA-256 of the filename,
+ * and namespaced keys go to the same layout under a hidden directory (".thumbs", ".quarantine").
+ * With 65536 leaf directories no directory grows past a few entries, where a flat directory slows down
+ * every lookup and listing once it holds hundreds of thousands of files.
+ * <p>
+ * Uploads are written to ".tmp" and moved into place with an atomic rename.
+ * Files from the former flat layout are moved into the fan-out on startup, its leftover ".upload-*.tmp" files
+ * are removed with the other abandoned uploads.
+ */
+@SuppressWarnings("unused")
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local", matchIfMissing = true)
+public class LocalStorageBackend implements StorageBackend {
+
+    // Hidden directory (inside upload.dir) holding the uploads being written
+    private static final String TEMP_DIR = ".tmp";
+    // Uploads in progress used to be written to "upload.dir/.upload-*.tmp"
+    private static final String LEGACY_TEMP_GLOB = ".upload-*.tmp";
+
+    @Value("${upload.dir}")
+    private String uploadDir;
+
+    private Path root;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(uploadDir).toAbsolutePath().normalize();
+        Files.createDirectories(root.resolve(TEMP_DIR));
+        migrateFlatLayout();
+    }
+
+    @Override
+    public Upload newUpload() throws IOException {
+        return new LocalUpload(Files.createTempFile(root.resolve(TEMP_DIR), "upload-", ".tmp"));
+    }
+
+    @Override
+    public StoredObject stat(String key) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(resolve(key), BasicFileAttributes.class);
+            return attributes.isRegularFile() ? toStoredObject(key, attributes) : null;
+        } catch(NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public InputStream openRange(String key, long offset, long length) throws IOException {
+        FileChannel channel = FileChannel.open(resolve(key), StandardOpenOption.READ);
+        channel.position(offset);
+        return new RangeInputStream(Channels.newInputStream(channel), length);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    @Override
+    public void move(String source, String target) throws IOException {
+        Path targetPath = resolve(target);
+        Files.createDirectories(targetPath.getParent());
+        Files.move(resolve(source), targetPath, StandardCopyOption.ATOMIC_MOVE);
+        Files.setLastModifiedTime(targetPath, FileTime.from(Instant.now()));
+    }
+
+    @Override
+    public Stream<StoredObject> list(String namespace) throws IOException {
+        Path base = namespaceDir(namespace);
+        String prefix = namespace.isEmpty() ? "" : namespace + "/";
+        // root -> ab -> cd -> files, each level listed lazily
+        return fanOutDirs(base)
+                .flatMap(LocalStorageBackend::fanOutDirs)
+                .flatMap(LocalStorageBackend::listQuietly)
+                .map(file -> {
+                    try {
+                        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                        return attributes.isRegularFile()
+                                ? toStoredObject(prefix + file.getFileName(), attributes) : null;
+                    } catch(NoSuchFileException e) {
+                        return null; // Deleted or moved since the listing
+                    } catch(IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .filter(Objects::nonNull);
+    }
+
+    @Override
+    public long deleteAbandonedUploads(Instant before) throws IOException {
+        return deleteOlderThan(root.resolve(TEMP_DIR), "*", before)
+                // Temporary files of the former flat layout, written next to the uploads
+                + deleteOlderThan(root, LEGACY_TEMP_GLOB, before);
+    }
+
+    private static long deleteOlderThan(Path dir, String glob, Instant before) throws IOException {
+        long bytes = 0;
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(dir, glob)) {
+            for(Path file : files) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    if(attributes.lastModifiedTime().toInstant().isBefore(before) && Files.deleteIfExists(file)) {
+                        bytes += attributes.size();
+                    }
+                } catch(NoSuchFileException e) {
+                    // Committed or discarded meanwhile
+                }
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public Path localPath(String key) {
+        return resolve(key);
+    }
+
+    /**
+     * Maps a key to its file: "{namespace dir}/ab/cd/{filename}".
+     * @throws IllegalArgumentException if the key is not a plain filename, optionally in a known namespace
+     */
+    private Path resolve(String key) {
+        StorageBackend.validateKey(key);
+        int slash = key.indexOf('/');
+        String namespace = slash < 0 ? "" : key.substring(0, slash);
+        String filename = key.substring(slash + 1);
+        byte[] digest = FileETagStore.newDigest().digest(filename.getBytes(StandardCharsets.UTF_8));
+        String hash = HexFormat.of().formatHex(digest, 0, 2);
+        return namespaceDir(namespace).resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(filename);
+    }
+
+    private Path namespaceDir(String namespace) {
+        return namespace.isEmpty() ? root : root.resolve("." + namespace);
+    }
+
+    /**
+     * Moves the files of the former flat layout ("upload.dir/{filename}", "upload.dir/.thumbs/{filename}")
+     * into the fan-out. A rename within the same filesystem, done once.
+     */
+    private void migrateFlatLayout() throws IOException {
+        int moved = 0;
+        for(String namespace : List.of("", THUMBNAILS, QUARANTINE)) {
+            Path base = namespaceDir(namespace);
+            if(!Files.isDirectory(base)) {
+                continue;
+            }
+            try(DirectoryStream<Path> files = Files.newDirectoryStream(base,
+                    file -> Files.isRegularFile(file) && !file.getFileName().toString().startsWith("."))) {
+                for(Path file : files) {
+                    String key = (namespace.isEmpty() ? "" : namespace + "/") + file.getFileName();
+                    Path target = resolve(key);
+                    Files.createDirectories(target.getParent());
+                    try {
+                        Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+                        moved++;
+                    } catch(NoSuchFileException e) {
+                        // Moved by another instance sharing the directory
+                    }
+                }
+            }
+        }
+        if(moved > 0) {
+            log.info("Moved {} file(s) from the flat upload directory into hashed subdirectories", moved);
+        }
+    }
+
+    /**
+     * The two-hex-digit subdirectories of a fan-out level.
+     */
+    private static Stream<Path> fanOutDirs(Path dir) {
+        return listQuietly(dir).filter(path -> {
+            String name = path.getFileName().toString();
+            return name.length() == 2 && Character.digit(name.charAt(0), 16) >= 0
+                    && Character.digit(name.charAt(1), 16) >= 0 && Files.isDirectory(path);
+        });
+    }
+
+    /**
+     * Lists a directory lazily, a directory removed meanwhile is empty.
+     */
+    private static Stream<Path> listQuietly(Path dir) {
+        try {
+            return Files.list(dir);
+        } catch(NoSuchFileException e) {
+            return Stream.empty();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static StoredObject toStoredObject(String key, BasicFileAttributes attributes) {
+        return new StoredObject(key, attributes.size(), attributes.lastModifiedTime().toInstant(), null);
+    }
+
+    /**
+     * Upload to a temporary file, committed with an atomic rename.
+     */
+    private final class LocalUpload implements Upload {
+        private final Path temp;
+        private final OutputStream out;
+
+        private LocalUpload(Path temp) throws IOException {
+            this.temp = temp;
+            this.out = Files.newOutputStream(temp);
+        }
+
+        @Override
+        public OutputStream stream() {
+            return out;
+        }
+
+        @Override
+        public boolean commit(String key) throws IOException {
+            Path target = resolve(key);
+            try {
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                return false;
+            } catch(NoSuchFileException e) {
+                // Not stored yet
+            }
+            Files.createDirectories(target.getParent());
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                out.close();
+            } finally {
+                Files.deleteIfExists(temp); // Already gone once committed
+            }
+        }
+    }
+
+    /**
+     * Reads at most length bytes of the underlying stream.
+     */
+    private static final class RangeInputStream extends FilterInputStream {
+        private long remaining;
+
+        private RangeInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if(remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if(b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if(remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if(read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
+import software.amazon.awssdk.services.s3.model.MultipartUpload;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/**
+ * Stores objects in a bucket of an S3-compatible service (AWS S3, MinIO, Ceph RGW, ...),
+ * so that several backend instances can serve the same files without a shared disk.
+ * <p>
+ * Keys are used as object keys unchanged. Uploads are streamed: the bytes are buffered one part (part-size) at a time,
+ * a file that fits in one part is stored with a single PUT, larger ones go through a multipart upload
+ * to a temporary "tmp/" key and are copied server-side to their final key once their hash is known
+ * (CopyObject up to 5 GB, UploadPartCopy in 512 MB parts above).
+ * Reads are (ranged) GETs, so Range requests never fetch more than the requested bytes.
+ * <p>
+ * For a local stand-in (e.g. MinIO on http://localhost:9000) set storage.s3.endpoint and keep path-style access on.
+ */
+@SuppressWarnings("unused")
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "s3")
+public class S3StorageBackend implements StorageBackend {
+
+    // Prefix of the multipart uploads waiting for their final key
+    private static final String TEMP_PREFIX = "tmp/";
+    // Smallest part S3 accepts (except for the last one)
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+    // Largest object a single CopyObject accepts, larger ones are copied in parts
+    private static final long MAX_COPY_SIZE = 5L * 1024 * 1024 * 1024;
+    private static final long COPY_PART_SIZE = 512L * 1024 * 1024;
+
+    @Value("${storage.s3.bucket}")
+    private String bucket;
+
+    // Empty for AWS, e.g. "http://localhost:9000" for MinIO
+    @Value("${storage.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${storage.s3.region:us-east-1}")
+    private String region;
+
+    // Empty to use the default AWS credentials chain (environment, profile, instance role)
+    @Value("${storage.s3.access-key:}")
+    private String accessKey;
+
+    @Value("${storage.s3.secret-key:}")
+    private String secretKey;
+
+    // "endpoint/bucket/key" instead of "bucket.endpoint/key", required by most S3-compatible services
+    @Value("${storage.s3.path-style:true}")
+    private boolean pathStyle;
+
+    @Value("${storage.s3.part-size:8388608}")
+    private int partSize;
+
+    private S3Client s3;
+
+    @PostConstruct
+    public void init() {
+        partSize = Math.max(partSize, MIN_PART_SIZE);
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .forcePathStyle(pathStyle);
+        if(!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        if(!accessKey.isBlank()) {
+            builder.credentialsProvider(
+                    StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)));
+        }
+        s3 = builder.build();
+        log.info("Storing files in bucket '{}'{}", bucket, endpoint.isBlank() ? "" : " at " + endpoint);
+    }
+
+    @PreDestroy
+    public void close() {
+        s3.close();
+    }
+
+    @Override
+    public Upload newUpload() {
+        return new S3Upload();
+    }
+
+    @Override
+    public StoredObject stat(String key) throws IOException {
+        StorageBackend.validateKey(key);
+        try {
+            HeadObjectResponse head = s3.headObject(request -> request.bucket(bucket).key(key));
+            return new StoredObject(key, head.contentLength(), head.lastModified(), head.eTag());
+        } catch(S3Exception e) {
+            if(e.statusCode() == 404) {
+                return null;
+            }
+            throw new IOException("Could not stat '" + key + "': " + e.getMessage(), e);
+        } catch(SdkException e) {
+            throw new IOException("Could not stat '" + key + "': " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        StorageBackend.validateKey(key);
+        return get(key, () -> s3.getObject(request -> request.bucket(bucket).key(key)));
+    }
+
+    @Override
+    public InputStream openRange(String key, long offset, long length) throws IOException {
+        StorageBackend.validateKey(key);
+        String range = "bytes=" + offset + "-" + (offset + length - 1);
+        return get(key, () -> s3.getObject(request -> request.bucket(bucket).key(key).range(range)));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        StorageBackend.validateKey(key);
+        call("delete '" + key + "'", () -> s3.deleteObject(request -> request.bucket(bucket).key(key)));
+    }
+
+    @Override
+    public void move(String source, String target) throws IOException {
+        StorageBackend.validateKey(target);
+        StoredObject object = stat(source);
+        if(object == null) {
+            throw new NoSuchFileException(source);
+        }
+        try {
+            // The copy is a new object, so its lastModified is the time of the move
+            copy(source, target, object.size());
+        } catch(S3Exception e) {
+            if(e.statusCode() == 404) {
+                throw new NoSuchFileException(source);
+            }
+            throw new IOException("Could not move '" + source + "': " + e.getMessage(), e);
+        } catch(SdkException e) {
+            throw new IOException("Could not move '" + source + "': " + e.getMessage(), e);
+        }
+        delete(source);
+    }
+
+    @Override
+    public Stream<StoredObject> list(String namespace) throws IOException {
+        String prefix = namespace.isEmpty() ? "" : namespace + "/";
+        // Pages of 1000 keys are fetched as the stream is consumed. The delimiter keeps the keys of other
+        // namespaces (and temporary objects) out of the root listing.
+        return call("list '" + prefix + "'", () -> s3
+                .listObjectsV2Paginator(request -> request.bucket(bucket).prefix(prefix).delimiter("/"))
+                .contents().stream()
+                .map(S3StorageBackend::toStoredObject));
+    }
+
+    @Override
+    public long deleteAbandonedUploads(Instant before) throws IOException {
+        return call("clean up abandoned uploads", () -> {
+            // Not only under tmp/: a multipart copy that failed and couldn't be aborted targets the final key
+            for(MultipartUpload upload : s3.listMultipartUploadsPaginator(request -> request.bucket(bucket))
+                    .uploads()) {
+                if(upload.initiated().isBefore(before)) {
+                    s3.abortMultipartUpload(request -> request
+                            .bucket(bucket).key(upload.key()).uploadId(upload.uploadId()));
+                }
+            }
+            long bytes = 0;
+            for(S3Object object : s3.listObjectsV2Paginator(request -> request.bucket(bucket).prefix(TEMP_PREFIX))
+                    .contents()) {
+                if(object.lastModified().isBefore(before)) {
+                    s3.deleteObject(request -> request.bucket(bucket).key(object.key()));
+                    bytes += object.size();
+                }
+            }
+            return bytes;
+        });
+    }
+
+    @Override
+    public Path localPath(String key) {
+        return null;
+    }
+
+    /**
+     * Server-side copy within the bucket. A copy onto the same key replaces the metadata, which S3 requires
+     * and which refreshes lastModified.
+     * @param size the size of the source object, decides between CopyObject and a multipart copy
+     */
+    private void copy(String source, String target, long size) {
+        if(size <= MAX_COPY_SIZE) {
+            s3.copyObject(request -> request.sourceBucket(bucket).sourceKey(source)
+                    .destinationBucket(bucket).destinationKey(target)
+                    .metadataDirective(source.equals(target) ? MetadataDirective.REPLACE : MetadataDirective.COPY));
+            return;
+        }
+        String copyId = s3.createMultipartUpload(request -> request.bucket(bucket).key(target)).uploadId();
+        try {
+            List<CompletedPart> copied = new ArrayList<>();
+            for(long offset = 0; offset < size; offset += COPY_PART_SIZE) {
+                int partNumber = copied.size() + 1;
+                String range = "bytes=" + offset + "-" + (Math.min(offset + COPY_PART_SIZE, size) - 1);
+                String etag = s3.uploadPartCopy(request -> request.sourceBucket(bucket).sourceKey(source)
+                        .destinationBucket(bucket).destinationKey(target).uploadId(copyId)
+                        .partNumber(partNumber).copySourceRange(range)).copyPartResult().eTag();
+                copied.add(CompletedPart.builder().partNumber(partNumber).eTag(etag).build());
+            }
+            s3.completeMultipartUpload(request -> request.bucket(bucket).key(target).uploadId(copyId)
+                    .multipartUpload(upload -> upload.parts(copied)));
+        } catch(SdkException e) {
+            try {
+                s3.abortMultipartUpload(request -> request.bucket(bucket).key(target).uploadId(copyId));
+            } catch(SdkException abortFailure) {
+                e.addSuppressed(abortFailure); // Aborted later by deleteAbandonedUploads
+            }
+            throw e;
+        }
+    }
+
+    private InputStream get(String key, Supplier<InputStream> request) throws IOException {
+        try {
+            return request.get();
+        } catch(S3Exception e) {
+            if(e.statusCode() == 404) {
+                throw new NoSuchFileException(key);
+            }
+            throw new IOException("Could not read '" + key + "': " + e.getMessage(), e);
+        } catch(SdkException e) {
+            throw new IOException("Could not read '" + key + "': " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Runs an SDK call, reporting its failures as IOException like the local driver.
+     */
+    private static <T> T call(String action, Supplier<T> call) throws IOException {
+        try {
+            return call.get();
+        } catch(SdkException e) {
+            throw new IOException("Could not " + action + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static StoredObject toStoredObject(S3Object object) {
+        return new StoredObject(object.key(), object.size(), object.lastModified(), object.eTag());
+    }
+
+    /**
+     * Streaming upload: one part-size buffer, a single PUT for small files, a multipart upload for larger ones.
+     */
+    private final class S3Upload implements Upload {
+        private final String tempKey = TEMP_PREFIX + UUID.randomUUID();
+        private final byte[] buffer = new byte[partSize];
+        private final List<CompletedPart> parts = new ArrayList<>();
+        private int buffered;
+        // Bytes sent in parts so far
+        private long size;
+        private String uploadId;
+        private boolean committed;
+
+        private final OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                while(length > 0) {
+                    if(buffered == buffer.length) {
+                        uploadPart();
+                    }
+                    int chunk = Math.min(length, buffer.length - buffered);
+                    System.arraycopy(bytes, offset, buffer, buffered, chunk);
+                    buffered += chunk;
+                    offset += chunk;
+                    length -= chunk;
+                }
+            }
+        };
+
+        @Override
+        public OutputStream stream() {
+            return out;
+        }
+
+        @Override
+        public boolean commit(String key) throws IOException {
+            StoredObject existing = stat(key);
+            if(existing != null) {
+                // Same key, same content: the bytes written are discarded by close(). A copy onto itself
+                // refreshes lastModified.
+                call("refresh '" + key + "'", () -> {
+                    copy(key, key, existing.size());
+                    return null;
+                });
+                return false;
+            }
+
+            if(uploadId == null) {
+                // Fits in one part: a single PUT straight to the final key
+                call("store '" + key + "'", () -> s3.putObject(request -> request.bucket(bucket).key(key),
+                        RequestBody.fromBytes(Arrays.copyOf(buffer, buffered))));
+            } else {
+                uploadPart();
+                call("complete the upload of '" + key + "'", () -> s3.completeMultipartUpload(request -> request
+                        .bucket(bucket).key(tempKey).uploadId(uploadId)
+                        .multipartUpload(upload -> upload.parts(parts))));
+                uploadId = null;
+                call("store '" + key + "'", () -> {
+                    copy(tempKey, key, size);
+                    return null;
+                });
+            }
+            committed = true;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if(uploadId != null) {
+                String id = uploadId;
+                uploadId = null;
+                call("abort an upload", () -> s3.abortMultipartUpload(request -> request
+                        .bucket(bucket).key(tempKey).uploadId(id)));
+            }
+            if(!parts.isEmpty()) {
+                // The temporary object exists once a multipart upload was completed, committed or not
+                call("remove '" + tempKey + "'",
+                        () -> s3.deleteObject(request -> request.bucket(bucket).key(tempKey)));
+            }
+        }
+
+        /**
+         * Sends the buffer as the next part, starting the multipart upload on the first one.
+         */
+        private void uploadPart() throws IOException {
+            if(committed) {
+                throw new IllegalStateException("Upload already committed");
+            }
+            if(uploadId == null) {
+                uploadId = call("start an upload", () -> s3.createMultipartUpload(request -> request
+                        .bucket(bucket).key(tempKey)).uploadId());
+            }
+            int partNumber = parts.size() + 1;
+            String etag = call("upload part " + partNumber, () -> s3.uploadPart(request -> request
+                    .bucket(bucket).key(tempKey).uploadId(uploadId).partNumber(partNumber),
+                    RequestBody.fromBytes(Arrays.copyOf(buffer, buffered))).eTag());
+            parts.add(CompletedPart.builder().partNumber(partNumber).eTag(etag).build());
+            size += buffered;
+            buffered = 0;
+        }
+    }
+}
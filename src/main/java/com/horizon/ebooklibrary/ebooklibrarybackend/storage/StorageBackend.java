@@ -0,0 +1,148 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+/**
+ * Where uploaded files, their thumbnails and quarantined orphans are stored.
+ * <p>
+ * Objects are addressed by key: the stored filename ("{sha256}.pdf", legacy "name_1712345678901.pdf")
+ * or "{namespace}/{filename}" for the THUMBNAILS and QUARANTINE namespaces. Keys never contain anything else,
+ * so a filename taken from a request can be used as a key (invalid ones are rejected with IllegalArgumentException).
+ * <p>
+ * Drivers: LocalStorageBackend (upload.dir, hashed fan-out directories) and S3StorageBackend (any S3-compatible
+ * service), selected with storage.backend=local|s3.
+ */
+public interface StorageBackend {
+
+    // Generated cover variants ("thumbs/{sha256}-w256.jpg")
+    String THUMBNAILS = "thumbs";
+    // Orphans waiting for deletion (see StorageReconciler)
+    String QUARANTINE = "quarantine";
+
+    /**
+     * Metadata of a stored object.
+     * @param key the object key
+     * @param size the size in bytes
+     * @param lastModified when the object was written (or moved)
+     * @param etag the entity tag reported by the backend, quoted, or null if it has none
+     */
+    record StoredObject(String key, long size, Instant lastModified, String etag) {
+    }
+
+    /**
+     * An object being written. The key is only chosen once all bytes are written (content addressing),
+     * so the bytes go to a temporary location first and commit publishes them.
+     * Closing an upload that wasn't committed discards it.
+     */
+    interface Upload extends Closeable {
+
+        /**
+         * @return the stream to write the content to, must be closed before commit
+         */
+        OutputStream stream();
+
+        /**
+         * Publishes the written bytes under the key, unless an object with that key already exists.
+         * An existing object gets its lastModified refreshed instead, so a re-upload counts as a recent upload
+         * for the grace periods of UploadService.deleteFile and the StorageReconciler.
+         * @param key the final key
+         * @return true if stored, false if the key already existed (the written bytes are discarded)
+         * @throws IOException if storing fails
+         */
+        boolean commit(String key) throws IOException;
+    }
+
+    /**
+     * Checks that a key is a plain filename, optionally in a known namespace.
+     * Shared by all drivers, so they accept the same keys.
+     * @param key the key to check
+     * @throws IllegalArgumentException if the key is invalid
+     */
+    static void validateKey(String key) {
+        int slash = key.indexOf('/');
+        String namespace = slash < 0 ? "" : key.substring(0, slash);
+        String filename = key.substring(slash + 1);
+        if(filename.isEmpty() || filename.startsWith(".") || filename.contains("/") || filename.contains("\\")
+                || !(namespace.isEmpty() || namespace.equals(THUMBNAILS) || namespace.equals(QUARANTINE))) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+    }
+
+    /**
+     * @return a new upload to write an object to
+     * @throws IOException if the temporary location can't be created
+     */
+    Upload newUpload() throws IOException;
+
+    /**
+     * @param key the object key
+     * @return the metadata of the object, or null if it doesn't exist
+     * @throws IOException if the backend can't be reached
+     */
+    StoredObject stat(String key) throws IOException;
+
+    /**
+     * Opens the whole object.
+     * @param key the object key
+     * @return the content, to be closed by the caller
+     * @throws java.nio.file.NoSuchFileException if the object doesn't exist
+     * @throws IOException if the backend can't be reached
+     */
+    InputStream open(String key) throws IOException;
+
+    /**
+     * Opens a byte range of the object (ranged GET).
+     * @param key the object key
+     * @param offset first byte
+     * @param length number of bytes, at least 1
+     * @return the content of the range, to be closed by the caller
+     * @throws java.nio.file.NoSuchFileException if the object doesn't exist
+     * @throws IOException if the backend can't be reached
+     */
+    InputStream openRange(String key, long offset, long length) throws IOException;
+
+    /**
+     * Deletes an object, a missing object is not an error.
+     * @param key the object key
+     * @throws IOException if the object can't be removed
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * Moves an object to another key. The moved object's lastModified is the time of the move.
+     * @param source the current key
+     * @param target the new key, must not exist
+     * @throws java.nio.file.NoSuchFileException if the source doesn't exist
+     * @throws IOException if the object can't be moved
+     */
+    void move(String source, String target) throws IOException;
+
+    /**
+     * Lists the objects of a namespace lazily, the listing is never held in memory as a whole.
+     * @param namespace "" for the uploaded files, THUMBNAILS or QUARANTINE
+     * @return the objects, to be closed by the caller
+     * @throws IOException if the listing can't be started
+     */
+    Stream<StoredObject> list(String namespace) throws IOException;
+
+    /**
+     * Removes the temporary data of uploads that were never committed or discarded (e.g. after a crash).
+     * @param before only uploads started before this time are removed
+     * @return the number of bytes reclaimed, as far as the backend reports them
+     * @throws IOException if the cleanup fails
+     */
+    long deleteAbandonedUploads(Instant before) throws IOException;
+
+    /**
+     * The object as a local file, for zero-copy serving (sendfile) and random access.
+     * @param key the object key
+     * @return the path of the object (it may not exist), or null if the backend isn't a local filesystem
+     */
+    Path localPath(String key);
+}
@@ -0,0 +1,135 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.repository;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.dto.BookSummary;
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.Book;
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.Role;
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.User;
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.UserBook;
+import com.horizon.ebooklibrary.ebooklibrarybackend.metrics.QueryCountInspector;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.horizon.ebooklibrary.ebooklibrarybackend.support.QueryCountAssertions.assertQueryCount;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Read/unread listing queries against an in-memory H2 database: each listing (or page of it) is one statement,
+ * whatever the number of books, and never touches the users table.
+ */
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import(QueryCountInspector.class)
+class BookListingQueriesTest {
+
+    private static final int BOOKS = 20;
+    private static final int READ = 5;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserBookRepository userBookRepository;
+
+    private long userId;
+
+    @BeforeEach
+    void setUp() {
+        User user = entityManager.persist(User.builder()
+                .email("reader@ebook.com")
+                .password("unused")
+                .role(Role.USER)
+                .build());
+        User other = entityManager.persist(User.builder()
+                .email("other@ebook.com")
+                .password("unused")
+                .role(Role.USER)
+                .build());
+
+        List<Book> books = new ArrayList<>();
+        for(int i = 0; i < BOOKS; i++) {
+            books.add(entityManager.persist(Book.builder()
+                    .title("Title " + i)
+                    .author("Author " + i)
+                    .description("Description " + i)
+                    .coverUrl("http://localhost/files/cover" + i + ".png")
+                    .pdfUrl("http://localhost/files/book" + i + ".pdf")
+                    .build()));
+        }
+        for(int i = 0; i < READ; i++) {
+            entityManager.persist(UserBook.builder().user(user).book(books.get(i)).read(true).build());
+        }
+        // Another user's marks must not leak into the listings
+        entityManager.persist(UserBook.builder().user(other).book(books.get(BOOKS - 1)).read(true).build());
+
+        userId = user.getId();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void readListingIsOneQuery() {
+        List<BookSummary> read = assertQueryCount(1, () -> userBookRepository.findReadBookSummaries(userId));
+        assertEquals(READ, read.size());
+    }
+
+    @Test
+    void unreadListingIsOneQuery() {
+        List<BookSummary> unread = assertQueryCount(1, () -> bookRepository.findUnreadBookSummaries(userId));
+        assertEquals(BOOKS - READ, unread.size());
+    }
+
+    @Test
+    void unreadCountIsOneQuery() {
+        long count = assertQueryCount(1, () -> bookRepository.countUnreadByUserId(userId));
+        assertEquals(BOOKS - READ, count);
+    }
+
+    @Test
+    void readPagesSeekPastTheCursor() {
+        List<BookSummary> first = assertQueryCount(1,
+                () -> userBookRepository.findReadPageOrderById(userId, Long.MIN_VALUE, Limit.of(3)));
+        assertEquals(3, first.size());
+
+        List<BookSummary> rest = assertQueryCount(1,
+                () -> userBookRepository.findReadPageOrderById(userId, first.get(2).getId(), Limit.of(3)));
+        assertEquals(READ - 3, rest.size());
+        assertTrue(rest.get(0).getId() > first.get(2).getId());
+    }
+
+    @Test
+    void unreadPagesByTitleCoverEveryUnreadBookOnce() {
+        List<BookSummary> seen = new ArrayList<>();
+        String afterTitle = "";
+        long afterId = Long.MIN_VALUE;
+        while(true) {
+            String title = afterTitle;
+            long id = afterId;
+            List<BookSummary> page = assertQueryCount(1,
+                    () -> bookRepository.findUnreadPageOrderByTitle(userId, title, id, Limit.of(4)));
+            if(page.isEmpty()) {
+                break;
+            }
+            seen.addAll(page);
+            afterTitle = page.get(page.size() - 1).getTitle();
+            afterId = page.get(page.size() - 1).getId();
+        }
+
+        assertEquals(BOOKS - READ, seen.size());
+        assertEquals(BOOKS - READ, seen.stream().map(BookSummary::getId).distinct().count());
+        for(int i = 1; i < seen.size(); i++) {
+            assertTrue(seen.get(i - 1).getTitle().compareTo(seen.get(i).getTitle()) <= 0);
+        }
+    }
+}
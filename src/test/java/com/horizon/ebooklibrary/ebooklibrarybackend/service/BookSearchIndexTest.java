@@ -0,0 +1,103 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.service;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.entity.Book;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * BookSearchIndex on a small fixed catalog, the repository is never called.
+ */
+class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex(null);
+        index.add(book(1, "Dragon Tales", "Anna Smith", "Stories told by the fire"));
+        index.add(book(2, "The Quiet Sea", "John Potter", "A sailor meets a dragon on the way home"));
+        index.add(book(3, "The Hobbit", "J.R.R. Tolkien", "There and back again"));
+        index.add(book(4, "The Bat Car", "Lee Park", "A short story about cars"));
+        index.add(book(5, "Xylophone Lessons", "Mia Chen", "Music for beginners"));
+    }
+
+    @Test
+    void titleMatchesRankAboveDescriptionMatches() {
+        assertEquals(List.of(1L, 2L), ids(index.search("dragon", 10)));
+    }
+
+    @Test
+    void everyQueryTokenAddsToTheScore() {
+        // "the" alone matches three titles, "hobbit" singles one of them out
+        assertEquals(3L, ids(index.search("the hobbit", 10)).get(0));
+    }
+
+    @Test
+    void prefixesMatchLongerTerms() {
+        assertEquals(List.of(2L), ids(index.search("pott", 10)));
+        assertEquals(List.of(5L), ids(index.search("xylo", 10)));
+    }
+
+    @Test
+    void oneTypoStillMatches() {
+        assertEquals(List.of(2L), ids(index.search("poter", 10)));     // deletion
+        assertEquals(List.of(3L), ids(index.search("tolkein", 10)));   // transposition
+        assertEquals(List.of(3L), ids(index.search("hobbot", 10)));    // substitution
+    }
+
+    @Test
+    void shortTokensDoNotMatchByTypo() {
+        // "cat" is one edit away from "bat" and "car", but too short for typo matching
+        assertTrue(index.search("cat", 10).isEmpty());
+        // Single characters are neither expanded as prefixes
+        assertTrue(index.search("x", 10).isEmpty());
+    }
+
+    @Test
+    void typosNeedToBeCloseEnough() {
+        // Two edits away from "tolkien", only one is allowed for tokens under eight characters
+        assertTrue(index.search("tulkein", 10).isEmpty());
+    }
+
+    @Test
+    void longTokensAllowTwoTypos() {
+        index.add(book(6, "Programming Pearls", "Jon Bentley", "Essays on writing code"));
+        // Two substitutions: no single deletion of one equals a single deletion of the other
+        assertEquals(List.of(6L), ids(index.search("prograzzing", 10)));
+        // A deletion and a substitution
+        assertEquals(List.of(6L), ids(index.search("progamminx", 10)));
+    }
+
+    @Test
+    void removedBooksAreNoLongerFound() {
+        index.remove(3);
+        assertTrue(index.search("hobbit", 10).isEmpty());
+        assertFalse(index.search("hob", 10).stream().anyMatch(book -> book.getID() == 3));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void tokenizerFoldsCaseAndAccents() {
+        assertEquals(List.of("eire", "s", "cafe", "2024"), BookSearchIndex.tokenize("ÉIRE's  Café-2024!"));
+    }
+
+    private static Book book(long id, String title, String author, String description) {
+        return Book.builder()
+                .ID(id)
+                .title(title)
+                .author(author)
+                .description(description)
+                .build();
+    }
+
+    private static List<Long> ids(List<Book> books) {
+        return books.stream().map(Book::getID).toList();
+    }
+}
@@ -0,0 +1,94 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * NotificationDispatcher against a local fake sender, Firebase is never called.
+ */
+class NotificationDispatcherTest {
+
+    private static final PushNotification NOTIFICATION = new PushNotification("new_books", "New Book", "Body", null);
+
+    private NotificationDispatcher dispatcher;
+
+    /**
+     * Fake sender: fails the first 'failures' calls, then sends everything, and records the batch sizes.
+     */
+    private static final class FakeSender implements NotificationSender {
+        private final AtomicInteger failures;
+        private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+        private FakeSender(int failures) {
+            this.failures = new AtomicInteger(failures);
+        }
+
+        @Override
+        public List<Status> send(List<PushNotification> batch) throws Exception {
+            batchSizes.add(batch.size());
+            if(failures.getAndDecrement() > 0) {
+                throw new Exception("Provider unavailable");
+            }
+            return Collections.nCopies(batch.size(), Status.SENT);
+        }
+    }
+
+    private NotificationDispatcher start(FakeSender sender, int failureThreshold) {
+        dispatcher = new NotificationDispatcher(sender, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(dispatcher, "queueCapacity", 100);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 10);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 5);
+        ReflectionTestUtils.setField(dispatcher, "initialBackoffMs", 10L);
+        ReflectionTestUtils.setField(dispatcher, "maxBackoffMs", 50L);
+        ReflectionTestUtils.setField(dispatcher, "failureThreshold", failureThreshold);
+        ReflectionTestUtils.setField(dispatcher, "openMs", 200L);
+        dispatcher.start();
+        return dispatcher;
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        dispatcher.stop();
+    }
+
+    @Test
+    void deliversQueuedNotificationsInBatches() throws Exception {
+        FakeSender sender = new FakeSender(0);
+        start(sender, 5);
+
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        for(int i = 0; i < 25; i++) {
+            results.add(dispatcher.enqueue(NOTIFICATION));
+        }
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        assertEquals(25, sender.batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(sender.batchSizes.stream().allMatch(size -> size <= 10));
+        assertEquals(0, dispatcher.getQueueDepth());
+    }
+
+    @Test
+    void retriesTransientFailuresThroughTheCircuitBreaker() throws Exception {
+        // Two failed calls open the circuit, the trial batch after the open period succeeds
+        FakeSender sender = new FakeSender(2);
+        start(sender, 2);
+
+        dispatcher.enqueue(NOTIFICATION).get(5, TimeUnit.SECONDS);
+
+        assertEquals(3, sender.batchSizes.size());
+        assertEquals(NotificationDispatcher.CircuitState.CLOSED, dispatcher.getCircuitState());
+    }
+}
@@ -0,0 +1,183 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.storage;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MinIOContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.NoSuchFileException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * S3StorageBackend against a MinIO container, one bucket per test.
+ * Needs Docker, so it only runs with ./gradlew test -Ps3Tests.
+ */
+@Tag("s3")
+@Testcontainers
+class S3StorageBackendTest {
+
+    @Container
+    private static final MinIOContainer MINIO = new MinIOContainer("minio/minio:RELEASE.2024-12-18T13-15-44Z");
+
+    private static S3Client admin;
+
+    private S3StorageBackend backend;
+    private String bucket;
+
+    @BeforeAll
+    static void connect() {
+        admin = S3Client.builder()
+                .region(Region.US_EAST_1)
+                .endpointOverride(URI.create(MINIO.getS3URL()))
+                .forcePathStyle(true)
+                .credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create(MINIO.getUserName(), MINIO.getPassword())))
+                .build();
+    }
+
+    @AfterAll
+    static void disconnect() {
+        admin.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        bucket = "test-" + UUID.randomUUID();
+        admin.createBucket(request -> request.bucket(bucket));
+
+        backend = new S3StorageBackend();
+        ReflectionTestUtils.setField(backend, "bucket", bucket);
+        ReflectionTestUtils.setField(backend, "endpoint", MINIO.getS3URL());
+        ReflectionTestUtils.setField(backend, "region", "us-east-1");
+        ReflectionTestUtils.setField(backend, "accessKey", MINIO.getUserName());
+        ReflectionTestUtils.setField(backend, "secretKey", MINIO.getPassword());
+        ReflectionTestUtils.setField(backend, "pathStyle", true);
+        ReflectionTestUtils.setField(backend, "partSize", 0); // Raised to the 5 MB minimum
+        backend.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        backend.close();
+    }
+
+    @Test
+    void smallFileIsStoredWithOnePut() throws IOException {
+        byte[] content = bytes(1000);
+        assertTrue(store("a.pdf", content));
+
+        StorageBackend.StoredObject object = backend.stat("a.pdf");
+        assertNotNull(object);
+        assertEquals(content.length, object.size());
+        assertArrayEquals(content, read("a.pdf"));
+        assertTrue(tempObjects().isEmpty());
+    }
+
+    @Test
+    void duplicateCommitKeepsTheObjectAndRefreshesIt() throws IOException {
+        byte[] content = bytes(1000);
+        store("a.pdf", content);
+        StorageBackend.StoredObject first = backend.stat("a.pdf");
+
+        assertFalse(store("a.pdf", content));
+        StorageBackend.StoredObject second = backend.stat("a.pdf");
+        assertArrayEquals(content, read("a.pdf"));
+        assertFalse(second.lastModified().isBefore(first.lastModified()));
+    }
+
+    @Test
+    void largeFileGoesThroughMultipartAndCopy() throws IOException {
+        // Two full 5 MB parts and a short last one
+        byte[] content = bytes(12 * 1024 * 1024 + 17);
+        assertTrue(store("big.pdf", content));
+
+        assertEquals(content.length, backend.stat("big.pdf").size());
+        assertArrayEquals(content, read("big.pdf"));
+        // The temporary object is removed and never listed
+        assertTrue(tempObjects().isEmpty());
+        assertEquals(List.of("big.pdf"), keys(""));
+    }
+
+    @Test
+    void rangedGetReturnsOnlyTheRange() throws IOException {
+        byte[] content = bytes(64 * 1024);
+        store("a.pdf", content);
+
+        try(InputStream in = backend.openRange("a.pdf", 1000, 500)) {
+            assertArrayEquals(Arrays.copyOfRange(content, 1000, 1500), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void moveAndListKeepNamespacesApart() throws IOException {
+        byte[] content = bytes(100);
+        store("a.pdf", content);
+        store("b.png", bytes(200));
+
+        backend.move("a.pdf", StorageBackend.QUARANTINE + "/a.pdf");
+
+        assertNull(backend.stat("a.pdf"));
+        assertArrayEquals(content, read(StorageBackend.QUARANTINE + "/a.pdf"));
+        assertEquals(List.of("b.png"), keys(""));
+        assertEquals(List.of(StorageBackend.QUARANTINE + "/a.pdf"), keys(StorageBackend.QUARANTINE));
+        assertThrows(NoSuchFileException.class, () -> backend.move("a.pdf", StorageBackend.QUARANTINE + "/a.pdf"));
+    }
+
+    private boolean store(String key, byte[] content) throws IOException {
+        try(StorageBackend.Upload upload = backend.newUpload()) {
+            upload.stream().write(content);
+            return upload.commit(key);
+        }
+    }
+
+    private byte[] read(String key) throws IOException {
+        try(InputStream in = backend.open(key)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private List<String> keys(String namespace) throws IOException {
+        try(Stream<StorageBackend.StoredObject> objects = backend.list(namespace)) {
+            return objects.map(StorageBackend.StoredObject::key).sorted().toList();
+        }
+    }
+
+    private List<String> tempObjects() {
+        return admin.listObjectsV2(request -> request.bucket(bucket).prefix("tmp/")).contents().stream()
+                .map(S3Object::key)
+                .toList();
+    }
+
+    private static byte[] bytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
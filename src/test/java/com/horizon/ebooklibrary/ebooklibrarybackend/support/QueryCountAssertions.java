@@ -0,0 +1,37 @@
+package com.horizon.ebooklibrary.ebooklibrarybackend.support;
+
+import com.horizon.ebooklibrary.ebooklibrarybackend.metrics.QueryCountInspector;
+
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Fails a test when a piece of code runs more SQL statements than expected, so N+1 regressions break the build.
+ * Counts through QueryCountInspector, which the test context must register
+ * (e.g. {@code @Import(QueryCountInspector.class)} on a {@code @DataJpaTest}).
+ */
+public final class QueryCountAssertions {
+
+    private QueryCountAssertions() {
+    }
+
+    /**
+     * Runs the action and asserts the number of statements Hibernate sent for it.
+     * Flush and clear the persistence context before, so that pending writes or cached entities don't skew the count.
+     * @param expected the expected number of statements
+     * @param action the code under test
+     * @return the action's result
+     */
+    public static <T> T assertQueryCount(int expected, Supplier<T> action) {
+        QueryCountInspector.start();
+        T result;
+        try {
+            result = action.get();
+        } finally {
+            int actual = QueryCountInspector.stop();
+            assertEquals(expected, actual, "Number of SQL statements");
+        }
+        return result;
+    }
+}